@@ -9,9 +9,11 @@ import org.jetbrains.kotlin.gradle.dsl.KotlinMultiplatformExtension
 plugins {
   alias(libs.plugins.mavenPublish) apply false
   alias(libs.plugins.kotlin.serialization) apply false
+  alias(libs.plugins.kotlin.allopen) apply false
   alias(libs.plugins.kotlin.multiplatform) apply false
   alias(libs.plugins.kotlin.android) apply false
   alias(libs.plugins.android.application) apply false
+  alias(libs.plugins.kotlinx.benchmark) apply false
   alias(libs.plugins.spotless) apply false
 }
 
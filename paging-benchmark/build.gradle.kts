@@ -0,0 +1,69 @@
+@Suppress("DSL_SCOPE_VIOLATION") // TODO: Remove once KTIJ-19369 is fixed
+plugins {
+  alias(libs.plugins.kotlin.multiplatform)
+  alias(libs.plugins.kotlin.allopen)
+  alias(libs.plugins.kotlinx.benchmark)
+}
+
+kotlin {
+  targetHierarchy.default()
+
+  js(IR) {
+    nodejs()
+  }
+
+  jvm()
+
+  linuxX64()
+
+  sourceSets {
+    all {
+      languageSettings {
+        optIn("androidx.paging.ExperimentalPagingApi")
+      }
+    }
+    val commonMain by getting {
+      dependencies {
+        implementation(projects.pagingCommon)
+        implementation(libs.kotlinx.atomicfu)
+        implementation(libs.kotlinx.benchmark.runtime)
+        implementation(libs.kotlinx.coroutines.core)
+      }
+    }
+    val jvmMain by getting {
+      dependencies {
+        // Virtual time for the scroll simulations.
+        implementation(libs.kotlinx.coroutines.test)
+      }
+    }
+  }
+}
+
+// JMH requires benchmark state classes to be open.
+allOpen {
+  annotation("org.openjdk.jmh.annotations.State")
+}
+
+benchmark {
+  targets {
+    register("jvm")
+    register("js")
+    register("linuxX64")
+  }
+  configurations {
+    named("main") {
+      warmups = 5
+      iterations = 10
+      iterationTime = 1
+      iterationTimeUnit = "s"
+      // Reports allocation rate (gc.alloc.rate.norm) alongside throughput on the JVM.
+      advanced("jvmProfiler", "gc")
+    }
+    register("smoke") {
+      warmups = 1
+      iterations = 3
+      iterationTime = 500
+      iterationTimeUnit = "ms"
+    }
+  }
+}
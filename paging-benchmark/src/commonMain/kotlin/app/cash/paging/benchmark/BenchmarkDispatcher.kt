@@ -0,0 +1,40 @@
+package app.cash.paging.benchmark
+
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Runnable
+import kotlinx.coroutines.launch
+import kotlin.coroutines.CoroutineContext
+
+/**
+ * Queues dispatched coroutines and runs them on the calling thread in [runUntilIdle].
+ *
+ * Driving paging this way keeps thread hops and scheduler latency out of the measurement,
+ * and behaves identically on the JVM, Kotlin/Native, and JS where blocking isn't an option.
+ */
+internal class BenchmarkDispatcher : CoroutineDispatcher() {
+
+  private val queue = ArrayDeque<Runnable>()
+
+  override fun dispatch(context: CoroutineContext, block: Runnable) {
+    queue.addLast(block)
+  }
+
+  fun runUntilIdle() {
+    while (true) {
+      val block = queue.removeFirstOrNull() ?: return
+      block.run()
+    }
+  }
+}
+
+/** Runs [block] to completion on a fresh [BenchmarkDispatcher], for work that never waits on another thread. */
+internal fun <T> runSettled(block: suspend CoroutineScope.() -> T): T {
+  val dispatcher = BenchmarkDispatcher()
+  var result: Result<T>? = null
+  CoroutineScope(dispatcher).launch {
+    result = runCatching { block() }
+  }
+  dispatcher.runUntilIdle()
+  return checkNotNull(result) { "block suspended without being resumed" }.getOrThrow()
+}
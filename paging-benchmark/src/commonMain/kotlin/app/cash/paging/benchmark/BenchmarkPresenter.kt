@@ -0,0 +1,81 @@
+package app.cash.paging.benchmark
+
+import app.cash.paging.DifferCallback
+import app.cash.paging.NullPaddedList
+import app.cash.paging.PagingData
+import app.cash.paging.PagingDataDiffer
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.collectLatest
+import kotlinx.coroutines.launch
+import kotlin.coroutines.CoroutineContext
+
+/**
+ * A headless presenter that collects [flow] the way a UI would, with every coroutine run on a
+ * [BenchmarkDispatcher] so that each call returns only once paging has settled.
+ *
+ * @param createDiffer creates the differ given the dispatcher to run on. By default new
+ * generations are presented without a diff.
+ */
+internal class BenchmarkPresenter<T : Any>(
+  flow: Flow<PagingData<T>>,
+  createDiffer: (CoroutineContext) -> PagingDataDiffer<T> = ::UndiffedPagingDataDiffer,
+) {
+
+  private val dispatcher = BenchmarkDispatcher()
+
+  private val differ = createDiffer(dispatcher)
+
+  private val job = CoroutineScope(dispatcher).launch {
+    flow.collectLatest { differ.collectFrom(it) }
+  }
+
+  init {
+    dispatcher.runUntilIdle()
+  }
+
+  val size: Int
+    get() = differ.size
+
+  /** Reads [index] like a bound view would, and runs any loads the resulting hint triggers. */
+  operator fun get(index: Int): T? {
+    val item = differ[index]
+    dispatcher.runUntilIdle()
+    return item
+  }
+
+  fun refresh() {
+    differ.refresh()
+    dispatcher.runUntilIdle()
+  }
+
+  /** Runs work triggered outside of this presenter, such as a [app.cash.paging.PagingSource] invalidation. */
+  fun settle() {
+    dispatcher.runUntilIdle()
+  }
+
+  fun close() {
+    job.cancel()
+    dispatcher.runUntilIdle()
+  }
+}
+
+private class UndiffedPagingDataDiffer<T : Any>(
+  mainContext: CoroutineContext,
+) : PagingDataDiffer<T>(NoopDifferCallback, mainContext, null) {
+  override suspend fun presentNewList(
+    previousList: NullPaddedList<T>,
+    newList: NullPaddedList<T>,
+    lastAccessedIndex: Int,
+    onListPresentable: () -> Unit,
+  ): Int? {
+    onListPresentable()
+    return null
+  }
+}
+
+internal object NoopDifferCallback : DifferCallback {
+  override fun onChanged(position: Int, count: Int) = Unit
+  override fun onInserted(position: Int, count: Int) = Unit
+  override fun onRemoved(position: Int, count: Int) = Unit
+}
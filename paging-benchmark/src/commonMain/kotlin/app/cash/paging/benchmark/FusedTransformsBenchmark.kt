@@ -0,0 +1,81 @@
+package app.cash.paging.benchmark
+
+import app.cash.paging.Pager
+import app.cash.paging.PagingConfig
+import app.cash.paging.PagingData
+import app.cash.paging.createPagingConfig
+import app.cash.paging.filter
+import app.cash.paging.filterItems
+import app.cash.paging.flatMap
+import app.cash.paging.flatMapItems
+import app.cash.paging.map
+import app.cash.paging.mapItems
+import kotlinx.benchmark.Benchmark
+import kotlinx.benchmark.BenchmarkMode
+import kotlinx.benchmark.BenchmarkTimeUnit
+import kotlinx.benchmark.Mode
+import kotlinx.benchmark.OutputTimeUnit
+import kotlinx.benchmark.Param
+import kotlinx.benchmark.Scope
+import kotlinx.benchmark.Setup
+import kotlinx.benchmark.State
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.map
+
+/**
+ * Scrolls through 1k-item pages transformed by the same 4-stage filter, map, flatMap, map chain,
+ * once as chained [PagingData] operators and once fused with [mapItems], [filterItems], and
+ * [flatMapItems]. Compare `gc.alloc.rate.norm` from the main configuration for allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(BenchmarkTimeUnit.SECONDS)
+class FusedTransformsBenchmark {
+
+  @Param("1000")
+  var pageSize: Int = 0
+
+  @Param("10000")
+  var itemCount: Int = 0
+
+  private lateinit var config: PagingConfig
+
+  @Setup
+  fun setUp() {
+    config = createPagingConfig(pageSize = pageSize, enablePlaceholders = false, initialLoadSize = pageSize)
+  }
+
+  @Benchmark
+  fun chained(): Int = scroll(
+    Pager(config, 0) { SyntheticPagingSource(itemCount) }.flow.map { pagingData ->
+      pagingData
+        .filter { it.id % 3 != 0 }
+        .map { it.copy(group = it.group * 2) }
+        .flatMap { if (it.id % 5 == 0) listOf(it, it.copy(id = -it.id)) else listOf(it) }
+        .map { it.copy(id = it.id + 1) }
+    },
+  )
+
+  @Benchmark
+  fun fused(): Int = scroll(
+    Pager(config, 0) {
+      SyntheticPagingSource(itemCount)
+        .filterItems { it.id % 3 != 0 }
+        .mapItems { it.copy(group = it.group * 2) }
+        .flatMapItems { if (it.id % 5 == 0) listOf(it, it.copy(id = -it.id)) else listOf(it) }
+        .mapItems { it.copy(id = it.id + 1) }
+    }.flow,
+  )
+
+  private fun scroll(flow: Flow<PagingData<Item>>): Int {
+    val presenter = BenchmarkPresenter(flow)
+    var checksum = 0
+    var index = 0
+    while (index < presenter.size) {
+      checksum += presenter[index]?.id ?: 0
+      index++
+    }
+    presenter.close()
+    return checksum
+  }
+}
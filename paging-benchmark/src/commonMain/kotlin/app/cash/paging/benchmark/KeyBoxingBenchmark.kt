@@ -0,0 +1,86 @@
+package app.cash.paging.benchmark
+
+import app.cash.paging.IntKeyLoadParams
+import app.cash.paging.IntKeyPagingSource
+import app.cash.paging.PagingSource
+import app.cash.paging.PagingSourceLoadParams
+import app.cash.paging.PagingSourceLoadParamsAppend
+import app.cash.paging.PagingSourceLoadResult
+import app.cash.paging.PagingSourceLoadResultPage
+import app.cash.paging.PagingState
+import kotlinx.benchmark.Benchmark
+import kotlinx.benchmark.BenchmarkMode
+import kotlinx.benchmark.BenchmarkTimeUnit
+import kotlinx.benchmark.Mode
+import kotlinx.benchmark.OutputTimeUnit
+import kotlinx.benchmark.Param
+import kotlinx.benchmark.Scope
+import kotlinx.benchmark.Setup
+import kotlinx.benchmark.State
+
+/**
+ * Compares key allocations of a generic `PagingSource<Int, V>` against [IntKeyPagingSource] by
+ * feeding each page's `nextKey` into the next APPEND, as [app.cash.paging.Pager] does. Keys start
+ * beyond the JVM's small-integer cache so every box is a real allocation. Compare `gc.alloc.rate.norm`.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(BenchmarkTimeUnit.SECONDS)
+class KeyBoxingBenchmark {
+
+  @Param("1000")
+  var pages: Int = 0
+
+  private val data = List(PAGE_SIZE) { Item(id = it, group = 0) }
+  private lateinit var genericSource: PagingSource<Int, Item>
+  private lateinit var intKeySource: PagingSource<Int, Item>
+
+  @Setup
+  fun setUp() {
+    genericSource = GenericKeyPagingSource(data)
+    intKeySource = UnboxedKeyPagingSource(data)
+  }
+
+  @Benchmark
+  fun genericKeys(): Int = appendAll(genericSource)
+
+  @Benchmark
+  fun intKeys(): Int = appendAll(intKeySource)
+
+  @Suppress("CAST_NEVER_SUCCEEDS", "USELESS_CAST", "KotlinRedundantDiagnosticSuppress", "UNCHECKED_CAST")
+  private fun appendAll(source: PagingSource<Int, Item>): Int = runSettled {
+    var key: Int? = FIRST_KEY
+    var loaded = 0
+    while (loaded < pages && key != null) {
+      val params = PagingSourceLoadParamsAppend(key, PAGE_SIZE, false) as PagingSourceLoadParams<Int>
+      val page = source.load(params) as Any as PagingSourceLoadResultPage<Int, Item>
+      key = page.nextKey
+      loaded++
+    }
+    loaded
+  }
+
+  private class GenericKeyPagingSource(private val data: List<Item>) : PagingSource<Int, Item>() {
+    @Suppress("CAST_NEVER_SUCCEEDS", "USELESS_CAST", "KotlinRedundantDiagnosticSuppress")
+    override suspend fun load(params: PagingSourceLoadParams<Int>): PagingSourceLoadResult<Int, Item> {
+      val key = params.key!!
+      return PagingSourceLoadResultPage(data, key - 1, key + 1) as PagingSourceLoadResult<Int, Item>
+    }
+
+    override fun getRefreshKey(state: PagingState<Int, Item>): Int? = null
+  }
+
+  private class UnboxedKeyPagingSource(private val data: List<Item>) : IntKeyPagingSource<Item>() {
+    override suspend fun load(params: IntKeyLoadParams): PagingSourceLoadResult<Int, Item> {
+      val key = params.key
+      return page(data, prevKey = key - 1, nextKey = key + 1)
+    }
+
+    override fun getRefreshKey(state: PagingState<Int, Item>): Int? = null
+  }
+
+  private companion object {
+    const val PAGE_SIZE = 20
+    const val FIRST_KEY = 1_000
+  }
+}
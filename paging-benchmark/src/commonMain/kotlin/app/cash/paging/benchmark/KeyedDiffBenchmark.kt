@@ -0,0 +1,76 @@
+package app.cash.paging.benchmark
+
+import app.cash.paging.KeyedPagingDataDiffer
+import app.cash.paging.PagingData
+import kotlinx.benchmark.Benchmark
+import kotlinx.benchmark.BenchmarkMode
+import kotlinx.benchmark.BenchmarkTimeUnit
+import kotlinx.benchmark.Mode
+import kotlinx.benchmark.OutputTimeUnit
+import kotlinx.benchmark.Param
+import kotlinx.benchmark.Scope
+import kotlinx.benchmark.Setup
+import kotlinx.benchmark.State
+import kotlinx.benchmark.TearDown
+import kotlinx.coroutines.flow.MutableStateFlow
+
+/**
+ * Presents alternating generations that differ by [change], either with a [KeyedPagingDataDiffer]
+ * or with no diff at all, which is the cost of the presenter itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(BenchmarkTimeUnit.SECONDS)
+class KeyedDiffBenchmark {
+
+  @Param("10000", "100000")
+  var itemCount: Int = 0
+
+  /** How the second generation differs from the first, by 1% of [itemCount]. */
+  @Param("append", "prepend", "move", "edit")
+  var change: String = ""
+
+  @Param("keyed", "none")
+  var differ: String = ""
+
+  private lateinit var generations: List<List<Item>>
+  private lateinit var pagingData: MutableStateFlow<PagingData<Item>>
+  private lateinit var presenter: BenchmarkPresenter<Item>
+  private var generation = 0
+
+  @Setup
+  fun setUp() {
+    val items = List(itemCount) { Item(id = it, group = it / 10) }
+    val changed = itemCount / 100
+    val extra = List(changed) { Item(id = itemCount + it, group = -1) }
+    val next = when (change) {
+      "append" -> items + extra
+      "prepend" -> extra + items
+      "move" -> items.drop(changed) + items.take(changed)
+      "edit" -> items.mapIndexed { index, item -> if (index % 100 == 0) item.copy(group = -1) else item }
+      else -> error("Unknown change $change")
+    }
+    generations = listOf(items, next)
+    pagingData = MutableStateFlow(PagingData.from(items))
+    presenter = when (differ) {
+      "keyed" -> BenchmarkPresenter(pagingData) { context ->
+        KeyedPagingDataDiffer(NoopDifferCallback, context, context, itemKey = Item::id)
+      }
+      "none" -> BenchmarkPresenter(pagingData)
+      else -> error("Unknown differ $differ")
+    }
+  }
+
+  @TearDown
+  fun tearDown() {
+    presenter.close()
+  }
+
+  @Benchmark
+  fun presentNewGeneration(): Int {
+    generation++
+    pagingData.value = PagingData.from(generations[generation % 2])
+    presenter.settle()
+    return presenter.size
+  }
+}
@@ -0,0 +1,75 @@
+package app.cash.paging.benchmark
+
+import app.cash.paging.Pager
+import app.cash.paging.PagingConfig
+import app.cash.paging.PagingData
+import app.cash.paging.PagingSource
+import app.cash.paging.createPagingConfig
+import app.cash.paging.map
+import app.cash.paging.mapCached
+import kotlinx.benchmark.Benchmark
+import kotlinx.benchmark.BenchmarkMode
+import kotlinx.benchmark.BenchmarkTimeUnit
+import kotlinx.benchmark.Mode
+import kotlinx.benchmark.OutputTimeUnit
+import kotlinx.benchmark.Param
+import kotlinx.benchmark.Scope
+import kotlinx.benchmark.Setup
+import kotlinx.benchmark.State
+import kotlinx.benchmark.TearDown
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.map
+
+/**
+ * Invalidates a presented list whose items go through an expensive transform, with [PagingData.map]
+ * and with [mapCached], which only transforms the items that aren't cached from the last generation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(BenchmarkTimeUnit.SECONDS)
+class MapCachedBenchmark {
+
+  @Param("map", "mapCached")
+  var operator: String = ""
+
+  private lateinit var config: PagingConfig
+  private lateinit var presenter: BenchmarkPresenter<String>
+  private var pagingSource: PagingSource<Int, Item>? = null
+
+  @Setup
+  fun setUp() {
+    config = createPagingConfig(pageSize = 50, enablePlaceholders = false)
+    val flow = Pager(config, 0) {
+      SyntheticPagingSource(ITEM_COUNT).also { pagingSource = it }
+    }.flow
+    val transformed: Flow<PagingData<String>> = when (operator) {
+      "map" -> flow.map { pagingData -> pagingData.map { render(it) } }
+      "mapCached" -> flow.mapCached(key = { it.id }, capacity = 1_000) { render(it) }
+      else -> error("Unknown operator $operator")
+    }
+    presenter = BenchmarkPresenter(transformed)
+  }
+
+  @TearDown
+  fun tearDown() {
+    presenter.close()
+  }
+
+  @Benchmark
+  fun invalidate(): Int {
+    pagingSource!!.invalidate()
+    presenter.settle()
+    return presenter.size
+  }
+
+  /** Stands in for building a view model: formatting plus some arithmetic. */
+  private fun render(item: Item): String {
+    var hash = item.id
+    repeat(2_000) { hash = hash * 31 + it }
+    return "Item ${item.id} in group ${item.group} ($hash)"
+  }
+
+  private companion object {
+    const val ITEM_COUNT = 10_000
+  }
+}
@@ -0,0 +1,83 @@
+package app.cash.paging.benchmark
+
+import app.cash.paging.LoadType
+import app.cash.paging.MulticastPagingMetrics
+import app.cash.paging.PagingMetrics
+import kotlinx.atomicfu.locks.SynchronizedObject
+import kotlinx.atomicfu.locks.synchronized
+import kotlinx.benchmark.Benchmark
+import kotlinx.benchmark.BenchmarkMode
+import kotlinx.benchmark.BenchmarkTimeUnit
+import kotlinx.benchmark.Mode
+import kotlinx.benchmark.OutputTimeUnit
+import kotlinx.benchmark.Param
+import kotlinx.benchmark.Scope
+import kotlinx.benchmark.Setup
+import kotlinx.benchmark.State
+
+/**
+ * Forwards events to [metricsCount] metrics through a [MulticastPagingMetrics] and through
+ * [LockedListPagingMetrics], a locked list copied for each event, the way listener lists are
+ * commonly made safe to change while notifying. Compare `gc.alloc.rate.norm` on the JVM. Runs
+ * single-threaded on every target; see `MetricsContentionBenchmark` for registration racing events.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(BenchmarkTimeUnit.SECONDS)
+class MetricsDispatchBenchmark {
+
+  @Param("1", "8")
+  var metricsCount: Int = 0
+
+  private val multicast = MulticastPagingMetrics()
+  private val lockedList = LockedListPagingMetrics()
+  private val counter = CountingPagingMetrics()
+
+  @Setup
+  fun setUp() {
+    repeat(metricsCount) {
+      multicast.add(counter)
+      lockedList.add(counter)
+    }
+  }
+
+  @Benchmark
+  fun dispatchMulticast(): Int {
+    multicast.onLoadStarted(LoadType.APPEND)
+    return counter.count
+  }
+
+  @Benchmark
+  fun dispatchLockedList(): Int {
+    lockedList.onLoadStarted(LoadType.APPEND)
+    return counter.count
+  }
+}
+
+/** Counts load starts. */
+internal class CountingPagingMetrics : PagingMetrics {
+  var count = 0
+
+  override fun onLoadStarted(loadType: LoadType) {
+    count++
+  }
+}
+
+/** Forwards load starts to a list that's locked to change and copied for each event. */
+internal class LockedListPagingMetrics : PagingMetrics {
+  private val lock = SynchronizedObject()
+  private val metrics = ArrayList<PagingMetrics>()
+
+  fun add(metrics: PagingMetrics) {
+    synchronized(lock) { this.metrics += metrics }
+  }
+
+  fun remove(metrics: PagingMetrics) {
+    synchronized(lock) { this.metrics.remove(metrics) }
+  }
+
+  override fun onLoadStarted(loadType: LoadType) {
+    val snapshot = synchronized(lock) { metrics.toList() }
+    snapshot.forEach { it.onLoadStarted(loadType) }
+  }
+}
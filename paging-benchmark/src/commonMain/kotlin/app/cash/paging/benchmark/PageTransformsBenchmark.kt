@@ -0,0 +1,76 @@
+package app.cash.paging.benchmark
+
+import app.cash.paging.Pager
+import app.cash.paging.PagingConfig
+import app.cash.paging.PagingData
+import app.cash.paging.createPagingConfig
+import app.cash.paging.map
+import app.cash.paging.mapPages
+import kotlinx.benchmark.Benchmark
+import kotlinx.benchmark.BenchmarkMode
+import kotlinx.benchmark.BenchmarkTimeUnit
+import kotlinx.benchmark.Mode
+import kotlinx.benchmark.OutputTimeUnit
+import kotlinx.benchmark.Param
+import kotlinx.benchmark.Scope
+import kotlinx.benchmark.Setup
+import kotlinx.benchmark.State
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.yield
+
+/**
+ * Scrolls through a list enriched item by item with [PagingData.map], and page by page with
+ * [mapPages]. The lookup suspends once per call, like a query or RPC, so the per-item variant pays
+ * for a suspension and continuation per item where the per-page variant pays once per page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(BenchmarkTimeUnit.SECONDS)
+class PageTransformsBenchmark {
+
+  @Param("10000")
+  var itemCount: Int = 0
+
+  @Param("20", "100")
+  var pageSize: Int = 0
+
+  private lateinit var config: PagingConfig
+
+  @Setup
+  fun setUp() {
+    config = createPagingConfig(pageSize = pageSize, enablePlaceholders = false)
+  }
+
+  @Benchmark
+  fun mapPerItem(): Int = scroll(
+    Pager(config, 0) { SyntheticPagingSource(itemCount) }.flow.map { pagingData ->
+      pagingData.map { item -> lookupGroups(listOf(item)).single() }
+    },
+  )
+
+  @Benchmark
+  fun mapPerPage(): Int = scroll(
+    Pager(config, 0) {
+      SyntheticPagingSource(itemCount).mapPages { page -> lookupGroups(page.data) }
+    }.flow,
+  )
+
+  /** Stands in for a batched query: suspends once however many items it resolves. */
+  private suspend fun lookupGroups(items: List<Item>): List<Item> {
+    yield()
+    return items.map { it.copy(group = -it.group) }
+  }
+
+  private fun scroll(flow: Flow<PagingData<Item>>): Int {
+    val presenter = BenchmarkPresenter(flow)
+    var checksum = 0
+    var index = 0
+    while (index < presenter.size) {
+      checksum += presenter[index]?.group ?: 0
+      index++
+    }
+    presenter.close()
+    return checksum
+  }
+}
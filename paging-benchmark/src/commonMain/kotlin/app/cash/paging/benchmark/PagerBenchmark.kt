@@ -0,0 +1,44 @@
+package app.cash.paging.benchmark
+
+import app.cash.paging.PagingConfig
+import app.cash.paging.createPagingConfig
+import kotlinx.benchmark.Benchmark
+import kotlinx.benchmark.BenchmarkMode
+import kotlinx.benchmark.BenchmarkTimeUnit
+import kotlinx.benchmark.Mode
+import kotlinx.benchmark.OutputTimeUnit
+import kotlinx.benchmark.Param
+import kotlinx.benchmark.Scope
+import kotlinx.benchmark.Setup
+import kotlinx.benchmark.State
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(BenchmarkTimeUnit.SECONDS)
+class PagerBenchmark {
+
+  @Param("20", "100")
+  var pageSize: Int = 0
+
+  @Param("10000")
+  var itemCount: Int = 0
+
+  private lateinit var config: PagingConfig
+
+  @Setup
+  fun setUp() {
+    config = createPagingConfig(pageSize = pageSize)
+  }
+
+  @Benchmark
+  fun coldRefresh(): Int = PagingScenarios.coldRefresh(itemCount, config)
+
+  @Benchmark
+  fun appendScroll(): Int = PagingScenarios.appendScroll(itemCount, config)
+
+  @Benchmark
+  fun prependScroll(): Int = PagingScenarios.prependScroll(itemCount, config)
+
+  @Benchmark
+  fun invalidationStorm(): Int = PagingScenarios.invalidationStorm(itemCount, config, invalidations = 50)
+}
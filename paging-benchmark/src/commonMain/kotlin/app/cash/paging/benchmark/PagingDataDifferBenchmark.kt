@@ -0,0 +1,57 @@
+package app.cash.paging.benchmark
+
+import app.cash.paging.PagingData
+import kotlinx.benchmark.Benchmark
+import kotlinx.benchmark.BenchmarkMode
+import kotlinx.benchmark.BenchmarkTimeUnit
+import kotlinx.benchmark.Mode
+import kotlinx.benchmark.OutputTimeUnit
+import kotlinx.benchmark.Param
+import kotlinx.benchmark.Scope
+import kotlinx.benchmark.Setup
+import kotlinx.benchmark.State
+import kotlinx.benchmark.TearDown
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.flowOf
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(BenchmarkTimeUnit.SECONDS)
+class PagingDataDifferBenchmark {
+
+  @Param("1000", "10000")
+  var itemCount: Int = 0
+
+  private lateinit var items: List<Item>
+  private lateinit var generations: MutableStateFlow<PagingData<Item>>
+  private lateinit var presenter: BenchmarkPresenter<Item>
+
+  @Setup
+  fun setUp() {
+    items = List(itemCount) { Item(id = it, group = it / 10) }
+    generations = MutableStateFlow(PagingData.from(items))
+    presenter = BenchmarkPresenter(generations)
+  }
+
+  @TearDown
+  fun tearDown() {
+    presenter.close()
+  }
+
+  /** Presents a first generation into an empty differ. */
+  @Benchmark
+  fun collectFrom(): Int {
+    val presenter = BenchmarkPresenter(flowOf(PagingData.from(items)))
+    val size = presenter.size
+    presenter.close()
+    return size
+  }
+
+  /** Replaces a non-empty generation, which routes through [app.cash.paging.PagingDataDiffer.presentNewList]. */
+  @Benchmark
+  fun presentNewList(): Int {
+    generations.value = PagingData.from(items)
+    presenter.settle()
+    return presenter.size
+  }
+}
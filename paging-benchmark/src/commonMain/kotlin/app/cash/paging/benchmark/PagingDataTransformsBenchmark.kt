@@ -0,0 +1,52 @@
+package app.cash.paging.benchmark
+
+import app.cash.paging.PagingData
+import app.cash.paging.filter
+import app.cash.paging.insertSeparators
+import app.cash.paging.map
+import kotlinx.benchmark.Benchmark
+import kotlinx.benchmark.BenchmarkMode
+import kotlinx.benchmark.BenchmarkTimeUnit
+import kotlinx.benchmark.Mode
+import kotlinx.benchmark.OutputTimeUnit
+import kotlinx.benchmark.Param
+import kotlinx.benchmark.Scope
+import kotlinx.benchmark.Setup
+import kotlinx.benchmark.State
+import kotlinx.coroutines.flow.flowOf
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(BenchmarkTimeUnit.SECONDS)
+class PagingDataTransformsBenchmark {
+
+  @Param("1000", "10000")
+  var itemCount: Int = 0
+
+  private lateinit var items: List<Item>
+
+  @Setup
+  fun setUp() {
+    items = List(itemCount) { Item(id = it, group = it / 10) }
+  }
+
+  @Benchmark
+  fun map(): Int = present(PagingData.from(items).map { it.copy(id = -it.id) })
+
+  @Benchmark
+  fun filter(): Int = present(PagingData.from(items).filter { it.id % 2 == 0 })
+
+  @Benchmark
+  fun insertSeparators(): Int = present(
+    PagingData.from(items).insertSeparators { before: Item?, after: Item? ->
+      if (after != null && before?.group != after.group) Item(id = -1, group = after.group) else null
+    },
+  )
+
+  private fun present(pagingData: PagingData<Item>): Int {
+    val presenter = BenchmarkPresenter(flowOf(pagingData))
+    val size = presenter.size
+    presenter.close()
+    return size
+  }
+}
@@ -0,0 +1,62 @@
+package app.cash.paging.benchmark
+
+import app.cash.paging.Pager
+import app.cash.paging.PagingConfig
+import app.cash.paging.PagingSource
+
+/** The [Pager] workloads shared by the multiplatform and JVM-only benchmarks. */
+internal object PagingScenarios {
+
+  /** Collects the first generation and returns once the initial REFRESH is presented. */
+  fun coldRefresh(itemCount: Int, config: PagingConfig): Int {
+    val presenter = BenchmarkPresenter(Pager(config, 0) { SyntheticPagingSource(itemCount) }.flow)
+    val size = presenter.size
+    presenter.close()
+    return size
+  }
+
+  /** Reads every item from the top to the bottom, loading each APPEND along the way. */
+  fun appendScroll(itemCount: Int, config: PagingConfig): Int {
+    val presenter = BenchmarkPresenter(Pager(config, 0) { SyntheticPagingSource(itemCount) }.flow)
+    var checksum = 0
+    var index = 0
+    while (index < presenter.size) {
+      checksum += presenter[index]?.id ?: 0
+      index++
+    }
+    presenter.close()
+    return checksum
+  }
+
+  /** Starts at the bottom and reads every item up to the top, loading each PREPEND along the way. */
+  fun prependScroll(itemCount: Int, config: PagingConfig): Int {
+    val initialKey = (itemCount - config.initialLoadSize).coerceAtLeast(0)
+    val presenter = BenchmarkPresenter(Pager(config, initialKey) { SyntheticPagingSource(itemCount) }.flow)
+    var checksum = 0
+    var index = presenter.size - 1
+    while (index >= 0) {
+      checksum += presenter[index]?.id ?: 0
+      index--
+    }
+    presenter.close()
+    return checksum
+  }
+
+  /** Invalidates the current [PagingSource] [invalidations] times while a presenter stays attached. */
+  fun invalidationStorm(itemCount: Int, config: PagingConfig, invalidations: Int): Int {
+    var pagingSource: PagingSource<Int, Item>? = null
+    val presenter = BenchmarkPresenter(
+      Pager(config, 0) {
+        SyntheticPagingSource(itemCount).also { pagingSource = it }
+      }.flow,
+    )
+    var checksum = 0
+    repeat(invalidations) { invalidation ->
+      pagingSource!!.invalidate()
+      presenter.settle()
+      checksum += presenter[invalidation % presenter.size]?.id ?: 0
+    }
+    presenter.close()
+    return checksum
+  }
+}
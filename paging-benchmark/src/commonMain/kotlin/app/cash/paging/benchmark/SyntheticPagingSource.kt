@@ -0,0 +1,54 @@
+package app.cash.paging.benchmark
+
+import app.cash.paging.PagingSource
+import app.cash.paging.PagingSourceLoadParams
+import app.cash.paging.PagingSourceLoadParamsPrepend
+import app.cash.paging.PagingSourceLoadResult
+import app.cash.paging.PagingState
+import app.cash.paging.createPagingSourceLoadResultPage
+import kotlinx.coroutines.delay
+import kotlin.time.Duration
+
+internal data class Item(
+  val id: Int,
+  val group: Int,
+)
+
+/**
+ * An offset-keyed source over [itemCount] in-memory items that loads without suspending, unless a
+ * [latency] is given to simulate a backend.
+ */
+internal class SyntheticPagingSource(
+  private val itemCount: Int,
+  private val groupSize: Int = 10,
+  private val latency: Duration = Duration.ZERO,
+) : PagingSource<Int, Item>() {
+
+  override val jumpingSupported: Boolean get() = true
+
+  @Suppress("CAST_NEVER_SUCCEEDS", "USELESS_CAST", "KotlinRedundantDiagnosticSuppress")
+  override suspend fun load(params: PagingSourceLoadParams<Int>): PagingSourceLoadResult<Int, Item> {
+    if (latency.isPositive()) delay(latency)
+    val key = params.key ?: 0
+    val start = if (params as Any is PagingSourceLoadParamsPrepend<*>) {
+      (key - params.loadSize).coerceAtLeast(0)
+    } else {
+      key.coerceIn(0, itemCount)
+    }
+    val end = if (params as Any is PagingSourceLoadParamsPrepend<*>) {
+      key
+    } else {
+      (start + params.loadSize).coerceAtMost(itemCount)
+    }
+    return createPagingSourceLoadResultPage<Int, Item>(
+      data = List(end - start) { Item(id = start + it, group = (start + it) / groupSize) },
+      prevKey = start.takeIf { it > 0 },
+      nextKey = end.takeIf { it < itemCount },
+      itemsBefore = start,
+      itemsAfter = itemCount - end,
+    ) as PagingSourceLoadResult<Int, Item>
+  }
+
+  override fun getRefreshKey(state: PagingState<Int, Item>): Int? =
+    state.anchorPosition?.let { (it - state.config.initialLoadSize / 2).coerceAtLeast(0) }
+}
@@ -0,0 +1,55 @@
+package app.cash.paging.benchmark
+
+import app.cash.paging.PagingSource
+import app.cash.paging.PagingSourceLoadParams
+import app.cash.paging.PagingSourceLoadParamsAppend
+import app.cash.paging.PagingSourceLoadResult
+import app.cash.paging.mapConcurrently
+import kotlinx.coroutines.runBlocking
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+
+/**
+ * Loads pages through [mapConcurrently] with a CPU-bound transform, sequentially and with one run
+ * per core, to compare the wall time of transforming a page against the ideal speedup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+class MapConcurrentlyBenchmark {
+
+  @Param("100")
+  var pageSize: Int = 0
+
+  /** 0 runs one transform per available processor. */
+  @Param("1", "0")
+  var concurrency: Int = 0
+
+  private lateinit var source: PagingSource<Int, Int>
+  private lateinit var params: PagingSourceLoadParams<Int>
+
+  @Setup
+  @Suppress("CAST_NEVER_SUCCEEDS", "USELESS_CAST", "KotlinRedundantDiagnosticSuppress")
+  fun setUp() {
+    val concurrency = if (concurrency == 0) Runtime.getRuntime().availableProcessors() else concurrency
+    source = SyntheticPagingSource(Int.MAX_VALUE).mapConcurrently(concurrency) { render(it) }
+    params = PagingSourceLoadParamsAppend(0, pageSize, false) as PagingSourceLoadParams<Int>
+  }
+
+  @Benchmark
+  fun loadPage(): PagingSourceLoadResult<Int, Int> = runBlocking { source.load(params) }
+
+  /** Stands in for decoding or rendering an item: about 20 µs of arithmetic. */
+  private fun render(item: Item): Int {
+    var hash = item.id
+    repeat(20_000) { hash = hash * 31 + it }
+    return hash
+  }
+}
@@ -0,0 +1,77 @@
+package app.cash.paging.benchmark
+
+import app.cash.paging.LoadType
+import app.cash.paging.MulticastPagingMetrics
+import app.cash.paging.PagingMetrics
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Group
+import org.openjdk.jmh.annotations.GroupThreads
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+
+/**
+ * Eight threads add and remove metrics while one thread reports events, against a
+ * [MulticastPagingMetrics] and against a [LockedListPagingMetrics]. Compare the `dispatch`
+ * throughput of the two groups.
+ *
+ * JVM only: kotlinx-benchmark runs native benchmarks on a single thread, so on Linux X64 only the
+ * uncontended `MetricsDispatchBenchmark` applies.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+class MetricsContentionBenchmark {
+
+  private val multicast = MulticastPagingMetrics()
+  private val lockedList = LockedListPagingMetrics()
+  private val counter = CountingPagingMetrics()
+
+  init {
+    repeat(METRICS_COUNT) {
+      multicast.add(counter)
+      lockedList.add(counter)
+    }
+  }
+
+  @Benchmark
+  @Group("multicast")
+  @GroupThreads(1)
+  fun multicastDispatch(): Int {
+    multicast.onLoadStarted(LoadType.APPEND)
+    return counter.count
+  }
+
+  @Benchmark
+  @Group("multicast")
+  @GroupThreads(8)
+  fun multicastRegister() {
+    val metrics = object : PagingMetrics {}
+    multicast.add(metrics)
+    multicast.remove(metrics)
+  }
+
+  @Benchmark
+  @Group("lockedList")
+  @GroupThreads(1)
+  fun lockedListDispatch(): Int {
+    lockedList.onLoadStarted(LoadType.APPEND)
+    return counter.count
+  }
+
+  @Benchmark
+  @Group("lockedList")
+  @GroupThreads(8)
+  fun lockedListRegister() {
+    val metrics = object : PagingMetrics {}
+    lockedList.add(metrics)
+    lockedList.remove(metrics)
+  }
+
+  private companion object {
+    const val METRICS_COUNT = 4
+  }
+}
@@ -0,0 +1,42 @@
+package app.cash.paging.benchmark
+
+import app.cash.paging.PagingConfig
+import app.cash.paging.createPagingConfig
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+
+/**
+ * Samples individual [PagingScenarios] runs so that JMH reports latency percentiles (p50 through p99.99),
+ * which the multiplatform benchmark modes cannot express.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+class PagerLatencyBenchmark {
+
+  @Param("20")
+  var pageSize: Int = 0
+
+  @Param("10000")
+  var itemCount: Int = 0
+
+  private lateinit var config: PagingConfig
+
+  @Setup
+  fun setUp() {
+    config = createPagingConfig(pageSize = pageSize)
+  }
+
+  @Benchmark
+  fun coldRefresh(): Int = PagingScenarios.coldRefresh(itemCount, config)
+
+  @Benchmark
+  fun invalidation(): Int = PagingScenarios.invalidationStorm(itemCount, config, invalidations = 1)
+}
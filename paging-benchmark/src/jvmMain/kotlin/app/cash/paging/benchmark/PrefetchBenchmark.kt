@@ -0,0 +1,152 @@
+package app.cash.paging.benchmark
+
+import app.cash.paging.NullPaddedList
+import app.cash.paging.Pager
+import app.cash.paging.PagingConfig
+import app.cash.paging.PagingDataDiffer
+import app.cash.paging.PipelinedPagingSource
+import app.cash.paging.VelocityPrefetchDistance
+import app.cash.paging.createPagingConfig
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.collectLatest
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.test.StandardTestDispatcher
+import kotlinx.coroutines.test.TestCoroutineScheduler
+import org.openjdk.jmh.annotations.AuxCounters
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+import kotlin.time.Duration.Companion.milliseconds
+
+/**
+ * Replays [ScrollTraces] against a [Pager] over a slow backend in virtual time, and counts the
+ * frames that show a placeholder, with a static prefetch distance and with a
+ * [VelocityPrefetchDistance]. Compare the `placeholderFrames` counters of the two. Without
+ * placeholders, a frame whose items aren't loaded yet shows the end of the list instead, and is
+ * counted the same way.
+ *
+ * Each frame reads every visible item, as a list UI does, so the velocity is measured from the
+ * same reads a real presenter would report.
+ *
+ * Both arms pipeline up to the same number of loads; the static arm's distance just never grows
+ * beyond one page, so the counters differ only by the velocity-based distance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+class PrefetchBenchmark {
+
+  @Param("fling", "flingBack", "browse")
+  var trace: String = ""
+
+  @Param("static", "velocity")
+  var prefetch: String = ""
+
+  @Param("true", "false")
+  var placeholders: Boolean = true
+
+  private lateinit var config: PagingConfig
+  private lateinit var frames: IntArray
+
+  @Setup
+  fun setUp() {
+    config = createPagingConfig(pageSize = PAGE_SIZE, prefetchDistance = PAGE_SIZE, enablePlaceholders = placeholders)
+    frames = ScrollTraces.named(trace, ITEM_COUNT, VISIBLE_ITEMS)
+  }
+
+  @Benchmark
+  fun replay(counters: PlaceholderFrames): Int {
+    val placeholderFrames = replay(frames)
+    counters.frames += frames.size
+    counters.placeholderFrames += placeholderFrames
+    return placeholderFrames
+  }
+
+  @OptIn(ExperimentalCoroutinesApi::class)
+  private fun replay(frames: IntArray): Int {
+    val scheduler = TestCoroutineScheduler()
+    val dispatcher = StandardTestDispatcher(scheduler)
+    val maxPrefetchDistance = when (prefetch) {
+      "static" -> PAGE_SIZE
+      "velocity" -> PAGE_SIZE * MAX_CONCURRENT_LOADS
+      else -> error("Unknown prefetch $prefetch")
+    }
+    val prefetchDistance = VelocityPrefetchDistance(
+      basePrefetchDistance = PAGE_SIZE,
+      maxPrefetchDistance = maxPrefetchDistance,
+      lookahead = LATENCY,
+      timeSource = scheduler.timeSource,
+    )
+    val pager = Pager(config, 0) {
+      PipelinedPagingSource(
+        delegate = SyntheticPagingSource(ITEM_COUNT, latency = LATENCY),
+        maxConcurrentLoadsPerDirection = MAX_CONCURRENT_LOADS,
+        keyAfter = { key, loadSize -> (key + loadSize).takeIf { it < ITEM_COUNT } },
+        keyBefore = { key, loadSize -> (key - loadSize).takeIf { it > 0 } },
+        prefetchDistance = prefetchDistance,
+      )
+    }
+    val differ = object : PagingDataDiffer<Item>(NoopDifferCallback, dispatcher, null) {
+      override suspend fun presentNewList(
+        previousList: NullPaddedList<Item>,
+        newList: NullPaddedList<Item>,
+        lastAccessedIndex: Int,
+        onListPresentable: () -> Unit,
+      ): Int? {
+        onListPresentable()
+        return null
+      }
+    }
+    val job = CoroutineScope(dispatcher).launch {
+      pager.flow.collectLatest { differ.collectFrom(it) }
+    }
+    scheduler.advanceUntilIdle()
+
+    var placeholderFrames = 0
+    for (first in frames) {
+      // Without placeholders, items past the loaded ones aren't in the list yet.
+      var placeholder = first + VISIBLE_ITEMS > differ.size
+      for (index in first until minOf(first + VISIBLE_ITEMS, differ.size)) {
+        prefetchDistance.onItemAccessed(index)
+        if (differ[index] == null) placeholder = true
+      }
+      if (placeholder) placeholderFrames++
+      scheduler.advanceTimeBy(ScrollTraces.FRAME_MILLIS)
+      scheduler.runCurrent()
+    }
+    job.cancel()
+    scheduler.advanceUntilIdle()
+    return placeholderFrames
+  }
+
+  /** Frames replayed and frames with a visible placeholder, summed over each iteration. */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  class PlaceholderFrames {
+    @JvmField var frames: Long = 0
+
+    @JvmField var placeholderFrames: Long = 0
+
+    @Setup(Level.Iteration)
+    fun reset() {
+      frames = 0
+      placeholderFrames = 0
+    }
+  }
+
+  private companion object {
+    const val ITEM_COUNT = 100_000
+    const val PAGE_SIZE = 20
+    const val VISIBLE_ITEMS = 10
+    const val MAX_CONCURRENT_LOADS = 8
+    val LATENCY = 300.milliseconds
+  }
+}
@@ -0,0 +1,80 @@
+package app.cash.paging.benchmark
+
+import app.cash.paging.PagingConfig
+import app.cash.paging.PagingSource
+import app.cash.paging.PagingSourceLoadParams
+import app.cash.paging.PagingSourceLoadParamsAppend
+import app.cash.paging.PagingSourceLoadResultPage
+import app.cash.paging.PagingState
+import app.cash.paging.createPagingConfig
+import app.cash.paging.mapPages
+import kotlinx.coroutines.runBlocking
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+
+/**
+ * Resolves the refresh key of a [mapPages] source over an unbounded state of [pageCount] small
+ * pages, which finds the anchor's page through a `PagingStateIndex`. `closestPageLinear` walks the
+ * same state with [PagingState.closestPageToPosition] for comparison. `appendAndRefreshKey` grows
+ * the state by one page per lookup, so the index pays for an incremental update each time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+class RefreshKeyBenchmark {
+
+  @Param("100", "10000")
+  var pageCount: Int = 0
+
+  private lateinit var config: PagingConfig
+  private lateinit var source: PagingSource<Int, Item>
+  private lateinit var pages: List<PagingSourceLoadResultPage<Int, Item>>
+  private lateinit var state: PagingState<Int, Item>
+
+  @Setup
+  @Suppress("CAST_NEVER_SUCCEEDS", "USELESS_CAST", "KotlinRedundantDiagnosticSuppress", "UNCHECKED_CAST")
+  fun setUp() {
+    config = createPagingConfig(pageSize = PAGE_SIZE, enablePlaceholders = false)
+    source = SyntheticPagingSource(Int.MAX_VALUE).mapPages { it.data }
+    pages = runBlocking {
+      List(pageCount + APPENDED_PAGES) { page ->
+        val params = PagingSourceLoadParamsAppend(page * PAGE_SIZE, PAGE_SIZE, false) as PagingSourceLoadParams<Int>
+        source.load(params) as PagingSourceLoadResultPage<Int, Item>
+      }
+    }
+    state = stateOf(pageCount)
+  }
+
+  @Benchmark
+  fun refreshKey(): Int? = source.getRefreshKey(state)
+
+  @Benchmark
+  fun closestPageLinear(): Int? = state.closestPageToPosition(state.anchorPosition!!)?.nextKey
+
+  @Benchmark
+  fun appendAndRefreshKey(): Int {
+    var checksum = 0
+    for (i in 1..APPENDED_PAGES) {
+      checksum += source.getRefreshKey(stateOf(pageCount + i)) ?: 0
+    }
+    return checksum
+  }
+
+  /** Returns a state of the first [count] pages, anchored on the last, where refreshes happen. */
+  private fun stateOf(count: Int): PagingState<Int, Item> =
+    PagingState(pages.subList(0, count), count * PAGE_SIZE - 1, config, 0)
+
+  private companion object {
+    const val PAGE_SIZE = 5
+
+    /** Fewer than the originals a transforming source keeps, so every anchor's page is kept. */
+    const val APPENDED_PAGES = 32
+  }
+}
@@ -0,0 +1,57 @@
+package app.cash.paging.benchmark
+
+import kotlin.math.exp
+import kotlin.random.Random
+
+/**
+ * Scroll traces as the index of the first visible item on each 60 Hz frame. They're generated with
+ * a fixed seed in the shape of recorded sessions: flings that decay under friction, and slow reading
+ * with pauses.
+ */
+internal object ScrollTraces {
+
+  const val FRAME_MILLIS = 16L
+
+  fun named(name: String, itemCount: Int, visibleItems: Int): IntArray = when (name) {
+    "fling" -> flings(itemCount, visibleItems, direction = 1)
+    "flingBack" -> {
+      val forward = flings(itemCount, visibleItems, direction = 1)
+      // Fling back from where the forward flings stopped, over pages that were loaded.
+      forward + flings(itemCount, visibleItems, direction = -1, from = forward.last())
+    }
+    "browse" -> browse(itemCount, visibleItems)
+    else -> error("Unknown trace $name")
+  }
+
+  /** Ten flings of 60 to 200 items per second, each decaying over about a second, with short pauses. */
+  private fun flings(itemCount: Int, visibleItems: Int, direction: Int, from: Int = 0): IntArray {
+    val random = Random(1)
+    val frames = mutableListOf<Int>()
+    var position = from.toDouble()
+    repeat(10) {
+      val initialVelocity = random.nextDouble(60.0, 200.0)
+      for (frame in 0 until 90) {
+        val velocity = initialVelocity * exp(-frame * FRAME_MILLIS / 400.0)
+        position += direction * velocity * FRAME_MILLIS / 1000
+        frames += position.toInt().coerceIn(0, itemCount - visibleItems)
+      }
+      repeat(random.nextInt(10, 30)) { frames += frames.last() }
+    }
+    return frames.toIntArray()
+  }
+
+  /** A minute of reading a few items per second, pausing on some of them. */
+  private fun browse(itemCount: Int, visibleItems: Int): IntArray {
+    val random = Random(2)
+    val frames = mutableListOf<Int>()
+    var position = 0.0
+    while (frames.size < 60 * 60) {
+      val velocity = if (random.nextInt(4) == 0) 0.0 else random.nextDouble(1.0, 6.0)
+      repeat(30) {
+        position += velocity * FRAME_MILLIS / 1000
+        frames += position.toInt().coerceIn(0, itemCount - visibleItems)
+      }
+    }
+    return frames.toIntArray()
+  }
+}
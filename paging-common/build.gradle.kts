@@ -78,9 +78,16 @@ kotlin {
     val commonMain by getting {
       dependencies {
         implementation(libs.kotlin.stdlib.common)
+        implementation(libs.kotlinx.atomicfu)
         implementation(libs.kotlinx.coroutines.core)
       }
     }
+    val commonTest by getting {
+      dependencies {
+        implementation(libs.kotlin.test)
+        implementation(libs.kotlinx.coroutines.test)
+      }
+    }
     val nonJsMain by getting
     val commonAndroidXMain by getting {
       dependsOn(nonJsMain)
@@ -0,0 +1,146 @@
+package app.cash.paging
+
+import kotlinx.atomicfu.locks.SynchronizedObject
+import kotlinx.atomicfu.locks.synchronized
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.milliseconds
+import kotlin.time.TimeSource
+import kotlin.time.TimeSource.Monotonic.ValueTimeMark
+
+/**
+ * Chooses the size of each load from the latency, item size, and consumption rate of recent loads,
+ * for an [AdaptiveLoadSizePagingSource]. Share one between the sources of successive generations so
+ * that what it learned carries over.
+ *
+ * Starting from the load size that [PagingConfig] requested, the size grows with latency above
+ * [targetLatency] to spread the cost of each round trip over more items, and shrinks with latency
+ * below it for a faster first page. It's raised to cover the items the UI consumes while a load is
+ * in flight, so that fast scrolling doesn't reach placeholders. It's then capped to
+ * [maxBytesPerLoad] of items and kept within [minLoadSize] and [maxLoadSize].
+ *
+ * @param window the number of recent loads to average over.
+ * @param sizeOf the estimated size of an item, in bytes. Only needed with [maxBytesPerLoad].
+ */
+class AdaptiveLoadSize<Value : Any>(
+  private val minLoadSize: Int,
+  private val maxLoadSize: Int,
+  private val targetLatency: Duration = 250.milliseconds,
+  private val maxBytesPerLoad: Long = Long.MAX_VALUE,
+  private val window: Int = 8,
+  private val sizeOf: (Value) -> Long = { 0 },
+) {
+
+  init {
+    require(minLoadSize in 1..maxLoadSize) { "minLoadSize must be between 1 and maxLoadSize" }
+    require(targetLatency.isPositive()) { "targetLatency must be positive" }
+    require(window > 0) { "window must be positive" }
+  }
+
+  private val lock = SynchronizedObject()
+  private val latencies = LongArray(window)
+  private val itemCounts = IntArray(window)
+  private val bytes = LongArray(window)
+  private var observations = 0
+  private var itemsPerSecond = 0.0
+
+  /** The start and item count of the last APPEND or PREPEND load, to measure consumption between them. */
+  private var lastEdgeLoadStart: ValueTimeMark? = null
+  private var lastEdgeLoadItems = 0
+
+  /** Returns the size to load instead of [requestedLoadSize]. */
+  fun loadSize(requestedLoadSize: Int): Int = synchronized(lock) {
+    if (observations == 0) return@synchronized requestedLoadSize.coerceIn(minLoadSize, maxLoadSize)
+    val count = minOf(observations, window)
+    var latencyNanos = 0L
+    var items = 0L
+    var totalBytes = 0L
+    for (i in 0 until count) {
+      latencyNanos += latencies[i]
+      items += itemCounts[i]
+      totalBytes += bytes[i]
+    }
+    val latencySeconds = latencyNanos / count / 1e9
+    val latencyScaled = requestedLoadSize * latencySeconds / (targetLatency.inWholeNanoseconds / 1e9)
+    val consumedInFlight = itemsPerSecond * latencySeconds * CONSUMPTION_HEADROOM
+    // Divide by the exact average, which is under a byte for tiny items.
+    val byteCap = if (totalBytes > 0 && items > 0) maxBytesPerLoad.toDouble() * items / totalBytes else Double.MAX_VALUE
+    val upper = byteCap.coerceIn(minLoadSize.toDouble(), maxLoadSize.toDouble()).toInt()
+    maxOf(latencyScaled, consumedInFlight).toInt().coerceIn(minLoadSize, upper)
+  }
+
+  internal fun onLoadStarted(loadType: LoadType, start: ValueTimeMark) {
+    if (loadType == LoadType.REFRESH) return
+    synchronized(lock) {
+      val last = lastEdgeLoadStart
+      if (last != null && lastEdgeLoadItems > 0) {
+        val seconds = (start - last).inWholeNanoseconds / 1e9
+        if (seconds > 0) {
+          val rate = lastEdgeLoadItems / seconds
+          itemsPerSecond = if (itemsPerSecond == 0.0) rate else itemsPerSecond + (rate - itemsPerSecond) / window
+        }
+      }
+      lastEdgeLoadStart = start
+    }
+  }
+
+  internal fun onLoadFinished(loadType: LoadType, latency: Duration, data: List<Value>) {
+    var pageBytes = 0L
+    if (maxBytesPerLoad != Long.MAX_VALUE) {
+      for (item in data) pageBytes += sizeOf(item)
+    }
+    synchronized(lock) {
+      val slot = observations % window
+      latencies[slot] = latency.inWholeNanoseconds
+      itemCounts[slot] = data.size
+      bytes[slot] = pageBytes
+      observations++
+      if (loadType != LoadType.REFRESH) lastEdgeLoadItems = data.size
+    }
+  }
+
+  private companion object {
+    /** Load at least twice what's consumed during one load, so the next is underway in time. */
+    const val CONSUMPTION_HEADROOM = 2.0
+  }
+}
+
+/**
+ * A [PagingSource] that rewrites the load size of each load of [delegate] as [loadSize] chooses,
+ * instead of using [PagingConfig.pageSize] and [PagingConfig.initialLoadSize] as is.
+ *
+ * Only wrap sources that accept any load size. Sources that page by number or by offset with a
+ * fixed page size, like the repo-search sample's, need every load to be the same size and must not
+ * be wrapped.
+ */
+class AdaptiveLoadSizePagingSource<Key : Any, Value : Any>(
+  private val delegate: PagingSource<Key, Value>,
+  private val loadSize: AdaptiveLoadSize<Value>,
+) : PagingSource<Key, Value>() {
+
+  init {
+    invalidateTogetherWith(delegate)
+  }
+
+  override val jumpingSupported: Boolean
+    get() = delegate.jumpingSupported
+
+  override val keyReuseSupported: Boolean
+    get() = delegate.keyReuseSupported
+
+  override suspend fun load(params: PagingSourceLoadParams<Key>): PagingSourceLoadResult<Key, Value> {
+    val loadType = params.loadType
+    val adaptedParams = createPagingSourceLoadParams(
+      loadType = loadType,
+      key = params.key,
+      loadSize = loadSize.loadSize(params.loadSize),
+      placeholdersEnabled = params.placeholdersEnabled,
+    )
+    val start = TimeSource.Monotonic.markNow()
+    loadSize.onLoadStarted(loadType, start)
+    val result = delegate.load(adaptedParams)
+    result.pageOrNull()?.let { loadSize.onLoadFinished(loadType, start.elapsedNow(), it.data) }
+    return result
+  }
+
+  override fun getRefreshKey(state: PagingState<Key, Value>): Key? = delegate.getRefreshKey(state)
+}
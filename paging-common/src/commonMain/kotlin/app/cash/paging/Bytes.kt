@@ -0,0 +1,79 @@
+package app.cash.paging
+
+/** Appends big-endian primitives and byte arrays to a growable buffer. */
+internal class ByteWriter(initialCapacity: Int = 256) {
+
+  private var buffer = ByteArray(initialCapacity)
+
+  var size: Int = 0
+    private set
+
+  fun writeByte(value: Int) {
+    ensureCapacity(1)
+    buffer[size++] = value.toByte()
+  }
+
+  fun writeInt(value: Int) {
+    ensureCapacity(4)
+    buffer.putInt(size, value)
+    size += 4
+  }
+
+  fun writeBytes(bytes: ByteArray) {
+    ensureCapacity(bytes.size)
+    bytes.copyInto(buffer, size)
+    size += bytes.size
+  }
+
+  /** Writes [bytes] preceded by their length, or a length of -1 for null. */
+  fun writeSizedBytes(bytes: ByteArray?) {
+    if (bytes == null) {
+      writeInt(-1)
+    } else {
+      writeInt(bytes.size)
+      writeBytes(bytes)
+    }
+  }
+
+  fun toByteArray(): ByteArray = buffer.copyOf(size)
+
+  private fun ensureCapacity(extra: Int) {
+    if (size + extra > buffer.size) {
+      buffer = buffer.copyOf(maxOf(buffer.size * 2, size + extra))
+    }
+  }
+}
+
+/** Reads what a [ByteWriter] wrote. */
+internal class ByteReader(val bytes: ByteArray, var position: Int = 0) {
+
+  fun readByte(): Int = bytes[position++].toInt()
+
+  fun readInt(): Int = bytes.getInt(position).also { position += 4 }
+
+  fun readSizedBytes(): ByteArray? {
+    val length = readInt()
+    if (length < 0) return null
+    return bytes.copyOfRange(position, position + length).also { position += length }
+  }
+
+  /** Skips over sized bytes, returning their length. */
+  fun skipSizedBytes(): Int {
+    val length = readInt()
+    if (length > 0) position += length
+    return length
+  }
+}
+
+internal fun ByteArray.putInt(offset: Int, value: Int) {
+  this[offset] = (value ushr 24).toByte()
+  this[offset + 1] = (value ushr 16).toByte()
+  this[offset + 2] = (value ushr 8).toByte()
+  this[offset + 3] = value.toByte()
+}
+
+internal fun ByteArray.getInt(offset: Int): Int =
+  (this[offset].toInt() and 0xff shl 24) or
+    (this[offset + 1].toInt() and 0xff shl 16) or
+    (this[offset + 2].toInt() and 0xff shl 8) or
+    (this[offset + 3].toInt() and 0xff)
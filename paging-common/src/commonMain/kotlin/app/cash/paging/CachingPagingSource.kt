@@ -0,0 +1,69 @@
+package app.cash.paging
+
+import kotlinx.atomicfu.atomic
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.launch
+
+/**
+ * A [PagingSource] that answers loads from [cache] when it holds the requested page, and otherwise
+ * loads from [delegate] and caches the result.
+ *
+ * Share one [cache] between the sources of successive generations so that an invalidation only
+ * refetches pages that fell out of it. If [revalidationScope] is given, each cache hit is also
+ * reloaded from [delegate] in that scope, and this source is invalidated when the page changed.
+ */
+class CachingPagingSource<Key : Any, Value : Any>(
+  private val delegate: PagingSource<Key, Value>,
+  private val cache: PageCache<Key, Value>,
+  private val revalidationScope: CoroutineScope? = null,
+) : PagingSource<Key, Value>() {
+
+  private val cacheWritesClosed = atomic(false)
+
+  init {
+    invalidateTogetherWith(delegate)
+  }
+
+  /**
+   * Stops this source caching the pages it loads, ahead of pages being evicted from [cache] and
+   * this source being invalidated. Loads already running then can't put an evicted page back.
+   */
+  internal fun closeCacheWrites() {
+    cacheWritesClosed.value = true
+  }
+
+  private fun isCurrent(): Boolean = !invalid && !cacheWritesClosed.value
+
+  override val jumpingSupported: Boolean
+    get() = delegate.jumpingSupported
+
+  override val keyReuseSupported: Boolean
+    get() = delegate.keyReuseSupported
+
+  override suspend fun load(params: PagingSourceLoadParams<Key>): PagingSourceLoadResult<Key, Value> {
+    val cacheKey = PageCacheKey(params)
+    val cachedPage = cache[cacheKey]
+    if (cachedPage != null) {
+      revalidationScope?.launch { revalidate(params, cacheKey, cachedPage) }
+      return cachedPage.asLoadResult()
+    }
+    val result = delegate.load(params)
+    result.pageOrNull()?.let { cache.put(cacheKey, it, ::isCurrent) }
+    return result
+  }
+
+  override fun getRefreshKey(state: PagingState<Key, Value>): Key? = delegate.getRefreshKey(state)
+
+  private suspend fun revalidate(
+    params: PagingSourceLoadParams<Key>,
+    cacheKey: PageCacheKey<Key>,
+    cachedPage: PagingSourceLoadResultPage<Key, Value>,
+  ) {
+    if (invalid) return
+    val page = delegate.load(params).pageOrNull() ?: return
+    if (page != cachedPage) {
+      cache.put(cacheKey, page, ::isCurrent)
+      invalidate()
+    }
+  }
+}
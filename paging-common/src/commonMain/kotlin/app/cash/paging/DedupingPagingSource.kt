@@ -0,0 +1,102 @@
+package app.cash.paging
+
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.NonCancellable
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.async
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withContext
+
+/**
+ * A [PagingSource] that routes its loads through [deduplicator], so that identical loads issued
+ * concurrently by any of the sources sharing it go out to the backend once.
+ *
+ * Share one [LoadDeduplicator] between the sources created for every collector of a [Pager.flow]
+ * (or for several pagers over the same data), and wrap each source as it's created:
+ *
+ * ```
+ * val deduplicator = LoadDeduplicator<Int, Post>()
+ * val pager = Pager(config) { DedupingPagingSource(PostPagingSource(api), deduplicator) }
+ * ```
+ */
+class DedupingPagingSource<Key : Any, Value : Any>(
+  private val delegate: PagingSource<Key, Value>,
+  private val deduplicator: LoadDeduplicator<Key, Value>,
+) : PagingSource<Key, Value>() {
+
+  init {
+    invalidateTogetherWith(delegate)
+  }
+
+  override val jumpingSupported: Boolean
+    get() = delegate.jumpingSupported
+
+  override val keyReuseSupported: Boolean
+    get() = delegate.keyReuseSupported
+
+  override suspend fun load(params: PagingSourceLoadParams<Key>): PagingSourceLoadResult<Key, Value> {
+    if (delegate.invalid) return delegate.load(params)
+    val result = deduplicator.load(params, delegate)
+    // The shared load may have run against a source that was invalidated since. Ours wasn't, so retry.
+    return if (result.isInvalid() && !delegate.invalid) delegate.load(params) else result
+  }
+
+  override fun getRefreshKey(state: PagingState<Key, Value>): Key? = delegate.getRefreshKey(state)
+}
+
+/**
+ * Coalesces concurrent loads with equal [LoadType], key, load size, and placeholder setting into a
+ * single load whose result is handed to every caller.
+ *
+ * A shared load is reference counted: it's cancelled only once every caller waiting on it has been
+ * cancelled, so one collector leaving doesn't fail the load for the others.
+ */
+class LoadDeduplicator<Key : Any, Value : Any> {
+
+  private val scope = CoroutineScope(SupervisorJob())
+  private val mutex = Mutex()
+  private val inFlight = mutableMapOf<LoadId<Key>, SharedLoad<Key, Value>>()
+
+  internal suspend fun load(
+    params: PagingSourceLoadParams<Key>,
+    pagingSource: PagingSource<Key, Value>,
+  ): PagingSourceLoadResult<Key, Value> {
+    val id = LoadId(params.loadType, params.key, params.loadSize, params.placeholdersEnabled)
+    val context = currentCoroutineContext().minusKey(Job)
+    val sharedLoad = mutex.withLock {
+      inFlight.getOrPut(id) {
+        SharedLoad(scope.async(context) { pagingSource.load(params) })
+      }.also { it.waiters++ }
+    }
+    try {
+      return sharedLoad.result.await()
+    } finally {
+      withContext(NonCancellable) {
+        mutex.withLock {
+          sharedLoad.waiters--
+          if (sharedLoad.result.isCompleted || sharedLoad.waiters == 0) {
+            if (inFlight[id] === sharedLoad) inFlight.remove(id)
+            if (sharedLoad.waiters == 0) sharedLoad.result.cancel()
+          }
+        }
+      }
+    }
+  }
+}
+
+private data class LoadId<Key : Any>(
+  val loadType: LoadType,
+  val key: Key?,
+  val loadSize: Int,
+  val placeholdersEnabled: Boolean,
+)
+
+private class SharedLoad<Key : Any, Value : Any>(
+  val result: Deferred<PagingSourceLoadResult<Key, Value>>,
+) {
+  var waiters = 0
+}
@@ -0,0 +1,290 @@
+package app.cash.paging
+
+import kotlinx.atomicfu.locks.SynchronizedObject
+import kotlinx.atomicfu.locks.synchronized
+
+/**
+ * An on-disk tier for [PageCache], holding pages in append-only segment files with an in-memory
+ * index from each page's key to its location.
+ *
+ * Segment files are memory mapped, so a page is read back without a system call, and the index is
+ * rebuilt from the segments on open so that pages survive a restart. Removing a page appends a
+ * tombstone record, so a removed page stays removed after a restart too. Once the segments hold
+ * `maxBytes`, the oldest segment is deleted along with its pages, and once half of the oldest
+ * segment is removed pages and tombstones, its remaining pages are copied forward and it's deleted
+ * early. Because the store sits behind a [PagingSource], it works the same with [cachedIn] and with
+ * a [RemoteMediator] feeding the source.
+ *
+ * Each record carries a checksum, and a record that fails it or doesn't decode ends its segment
+ * when the store is opened. A crash mid-write loses the pages written last rather than the store.
+ *
+ * Create one with `createMappedDiskPageStore`, available on the JVM and Linux X64.
+ */
+class DiskPageStore<Key : Any, Value : Any> internal constructor(
+  private val directory: SegmentDirectory,
+  private val codec: PageCodec<Key, Value>,
+  maxBytes: Long,
+) {
+
+  private val lock = SynchronizedObject()
+  private val segmentCapacity: Int = (maxBytes / SEGMENT_COUNT).coerceIn(MIN_SEGMENT_BYTES.toLong(), Int.MAX_VALUE.toLong()).toInt()
+  private val segments = ArrayDeque<Segment>()
+  private val index = HashMap<PageCacheKey<Key>, Location>()
+
+  init {
+    var tornTail = false
+    for (id in directory.segmentIds().sorted()) {
+      val segment = Segment(id, directory.open(id, segmentCapacity))
+      segments.addLast(segment)
+      tornTail = scan(segment)
+    }
+    // Appending continues in the newest segment unless a crash tore its last record. A full segment
+    // is rolled over by the first append.
+    if (segments.isEmpty() || tornTail) roll()
+    compact()
+  }
+
+  /** The number of pages on disk. */
+  val size: Int
+    get() = synchronized(lock) { index.size }
+
+  internal operator fun get(key: PageCacheKey<Key>): PagingSourceLoadResultPage<Key, Value>? {
+    val record = synchronized(lock) { index[key]?.read() } ?: return null
+    return decodePage(record)
+  }
+
+  /** Writes [page] unless [shouldWrite], which is checked under the same lock as removals, is false. */
+  internal fun put(
+    key: PageCacheKey<Key>,
+    page: PagingSourceLoadResultPage<Key, Value>,
+    shouldWrite: () -> Boolean = { true },
+  ) {
+    val record = encodeRecord(RECORD_PAGE, key) { codec.writePage(it, page) }
+    if (RECORD_HEADER_BYTES + record.size + RECORD_HEADER_BYTES > segmentCapacity) return
+    synchronized(lock) {
+      if (!shouldWrite()) return
+      index[key]?.let(::markDead)
+      index[key] = append(record)
+      compact()
+    }
+  }
+
+  internal fun remove(key: PageCacheKey<Key>) {
+    synchronized(lock) {
+      removeLocked(key)
+      compact()
+    }
+  }
+
+  internal fun removeAll(predicate: (PageCacheKey<Key>) -> Boolean) {
+    synchronized(lock) {
+      index.keys.filter(predicate).forEach(::removeLocked)
+      compact()
+    }
+  }
+
+  /**
+   * Removes the pages that [predicate] matches, reading each page on disk to test it. Pages are
+   * decoded and tested outside the lock, one at a time, and a page replaced in the meantime is kept.
+   */
+  internal fun removeAll(predicate: (PageCacheKey<Key>, PagingSourceLoadResultPage<Key, Value>) -> Boolean) {
+    val keys = synchronized(lock) { index.keys.toList() }
+    val matches = keys.mapNotNull { key ->
+      val record = synchronized(lock) { index[key]?.read() } ?: return@mapNotNull null
+      (key to record).takeIf { predicate(key, decodePage(record)) }
+    }
+    synchronized(lock) {
+      for ((key, record) in matches) {
+        // Compaction moves a page without changing its record, so compare records, not locations.
+        if (index[key]?.read()?.contentEquals(record) == true) removeLocked(key)
+      }
+      compact()
+    }
+  }
+
+  /** Deletes every page and segment file. */
+  fun clear() {
+    synchronized(lock) {
+      index.clear()
+      while (segments.isNotEmpty()) {
+        deleteOldest()
+      }
+      roll()
+    }
+  }
+
+  fun close() {
+    synchronized(lock) {
+      index.clear()
+      segments.forEach { it.file.close() }
+      segments.clear()
+    }
+  }
+
+  private fun removeLocked(key: PageCacheKey<Key>) {
+    val location = index.remove(key) ?: return
+    markDead(location)
+    // The tombstone lands in a newer segment than the page it removes, so it's never deleted first.
+    markDead(append(encodeRecord(RECORD_TOMBSTONE, key) {}))
+  }
+
+  private fun append(record: ByteArray): Location {
+    var segment = segments.last()
+    if (segment.end + RECORD_HEADER_BYTES + record.size + RECORD_HEADER_BYTES > segmentCapacity) {
+      roll()
+      segment = segments.last()
+    }
+    val offset = segment.end
+    segment.file.write(offset + RECORD_HEADER_BYTES, record)
+    // Stores to a mapping may reach the disk in any order, so scan() trusts this header only if
+    // the checksum it carries matches the record.
+    segment.file.write(
+      offset,
+      ByteArray(RECORD_HEADER_BYTES).apply {
+        putInt(0, record.size)
+        putInt(4, checksum(record))
+      },
+    )
+    segment.end += RECORD_HEADER_BYTES + record.size
+    return Location(segment, offset, record.size)
+  }
+
+  private fun markDead(location: Location) {
+    location.segment.deadBytes += RECORD_HEADER_BYTES + location.length
+  }
+
+  /**
+   * Copies the live pages out of the oldest segment and deletes it, while at least half of it is
+   * removed pages and tombstones. Only the oldest segment is compacted: a tombstone may mask a page
+   * in any older segment, so it can't be dropped before those are.
+   */
+  private fun compact() {
+    while (segments.size > 1) {
+      val oldest = segments.first()
+      if (oldest.end > 0 && oldest.deadBytes * 2 < oldest.end) return
+      val live = index.entries
+        .filter { it.value.segment === oldest }
+        .map { it.key to it.value.read() }
+      deleteOldest()
+      for ((key, record) in live) {
+        index[key] = append(record)
+      }
+    }
+  }
+
+  private fun roll() {
+    val id = (segments.lastOrNull()?.id ?: -1) + 1
+    segments.addLast(Segment(id, directory.open(id, segmentCapacity)))
+    while (segments.size > SEGMENT_COUNT) {
+      deleteOldest()
+    }
+  }
+
+  private fun deleteOldest() {
+    val oldest = segments.removeFirst()
+    index.values.removeAll { it.segment === oldest }
+    oldest.file.close()
+    directory.delete(oldest.id)
+  }
+
+  /**
+   * Indexes the records in [segment], applying tombstones, up to the first record that's torn or
+   * corrupt. The segment is truncated there so that later opens stop at the same record. Returns
+   * true if it was, and false if the records ended cleanly.
+   */
+  private fun scan(segment: Segment): Boolean {
+    var offset = 0
+    while (offset + RECORD_HEADER_BYTES <= segmentCapacity) {
+      val location = try {
+        readRecord(segment, offset)
+      } catch (e: Exception) {
+        null
+      } ?: break
+      offset += RECORD_HEADER_BYTES + location.length
+    }
+    segment.end = offset
+    // Records end at a zero header, since the header is written after the record it describes.
+    if (offset + RECORD_HEADER_BYTES > segmentCapacity || segment.file.readInt(offset) == 0) return false
+    segment.file.write(offset, ByteArray(RECORD_HEADER_BYTES))
+    return true
+  }
+
+  /** Indexes the record at [offset] and returns its location, or null if there's no valid record. */
+  private fun readRecord(segment: Segment, offset: Int): Location? {
+    val length = segment.file.readInt(offset)
+    if (length <= 0 || offset + RECORD_HEADER_BYTES + length > segmentCapacity) return null
+    val record = segment.file.read(offset + RECORD_HEADER_BYTES, length)
+    if (segment.file.readInt(offset + 4) != checksum(record)) return null
+    val reader = ByteReader(record)
+    val type = reader.readByte()
+    if (type != RECORD_PAGE && type != RECORD_TOMBSTONE) return null
+    val key = decodeKey(reader)
+    val location = Location(segment, offset, length)
+    index.remove(key)?.let(::markDead)
+    if (type == RECORD_PAGE) {
+      index[key] = location
+    } else {
+      markDead(location)
+    }
+    return location
+  }
+
+  private inline fun encodeRecord(
+    type: Int,
+    key: PageCacheKey<Key>,
+    writeBody: (ByteWriter) -> Unit,
+  ): ByteArray {
+    val writer = ByteWriter()
+    writer.writeByte(type)
+    writer.writeByte(key.loadType.ordinal)
+    writer.writeInt(key.loadSize)
+    writer.writeSizedBytes(key.key?.let(codec::encodeKey))
+    writeBody(writer)
+    return writer.toByteArray()
+  }
+
+  private fun decodeKey(reader: ByteReader): PageCacheKey<Key> {
+    val loadType = LoadType.values()[reader.readByte()]
+    val loadSize = reader.readInt()
+    val key = reader.readSizedBytes()?.let(codec::decodeKey)
+    return PageCacheKey(loadType, key, loadSize)
+  }
+
+  private fun decodePage(record: ByteArray): PagingSourceLoadResultPage<Key, Value> {
+    val reader = ByteReader(record)
+    reader.readByte()
+    decodeKey(reader)
+    return codec.readPage(reader)
+  }
+
+  private class Segment(val id: Int, val file: SegmentFile) {
+    var end: Int = 0
+
+    /** The bytes of removed pages and tombstones in this segment. */
+    var deadBytes: Int = 0
+  }
+
+  private class Location(val segment: Segment, val offset: Int, val length: Int) {
+    fun read(): ByteArray = segment.file.read(offset + RECORD_HEADER_BYTES, length)
+  }
+
+  private companion object {
+    const val SEGMENT_COUNT = 4
+    const val MIN_SEGMENT_BYTES = 64 * 1024
+
+    /** A record's length and then its checksum. */
+    const val RECORD_HEADER_BYTES = 8
+
+    const val RECORD_PAGE = 0
+    const val RECORD_TOMBSTONE = 1
+  }
+}
+
+/** Returns the 32-bit FNV-1a hash of [bytes]. */
+private fun checksum(bytes: ByteArray): Int {
+  var hash = -0x7ee3623b // 2166136261
+  for (byte in bytes) {
+    hash = (hash xor (byte.toInt() and 0xff)) * 0x01000193
+  }
+  return hash
+}
@@ -0,0 +1,176 @@
+package app.cash.paging
+
+import kotlinx.atomicfu.locks.SynchronizedObject
+import kotlinx.atomicfu.locks.synchronized
+
+/**
+ * Returns a [PagingSource] that drops each item whose [key] was already loaded on another page of
+ * this source, as offset-paginated backends return when their ordering shifts between loads. Since
+ * each generation loads from a new source, items are distinct within a generation.
+ *
+ * Keys are remembered for the pages that loaded the last [maxItems] items, so memory stays bounded
+ * however far the list is scrolled. Set it to at least the [PagingConfig.maxSize] of the [Pager],
+ * so that every page the [Pager] keeps is covered. A duplicate of an item on a page outside that
+ * window isn't dropped. A page that's loaded again within the window, as after being dropped for
+ * [PagingConfig.maxSize], keeps the items it kept the first time.
+ *
+ * By default keys are remembered exactly, in a map entry each. With [bloomFilterBitsPerItem] above
+ * zero, they're remembered in two Bloom filters of [maxItems] times that many bits instead, the
+ * older of which is discarded each time the newer one has seen [maxItems] keys, plus the 4-byte
+ * hash code of each kept key. That falsely drops some distinct items: with 10 bits per item at
+ * most about 3.5 in 100, and with 16 bits at most about 1 in 100.
+ *
+ * Pages report undefined [PagingSourceLoadResultPage.itemsBefore] and
+ * [PagingSourceLoadResultPage.itemsAfter], since the distinct counts beyond each page aren't known.
+ * The number of items dropped from each page is reported to [metrics].
+ */
+fun <Key : Any, T : Any> PagingSource<Key, T>.distinctItemsBy(
+  maxItems: Int,
+  bloomFilterBitsPerItem: Int = 0,
+  metrics: PagingMetrics = PagingMetrics.None,
+  key: (T) -> Any,
+): PagingSource<Key, T> {
+  require(maxItems > 0) { "maxItems must be positive, but was $maxItems" }
+  require(bloomFilterBitsPerItem >= 0) { "bloomFilterBitsPerItem must not be negative, but was $bloomFilterBitsPerItem" }
+  require(maxItems.toLong() * bloomFilterBitsPerItem <= Int.MAX_VALUE) { "maxItems * bloomFilterBitsPerItem must fit in an Int" }
+  val seenKeys = if (bloomFilterBitsPerItem > 0) {
+    BloomSeenKeys<Key>(maxItems, maxItems * bloomFilterBitsPerItem)
+  } else {
+    ExactSeenKeys(maxItems)
+  }
+  return TransformingPagingSource(this, preservesCounts = false) { page ->
+    val pageId = page.prevKey to page.nextKey
+    val data = seenKeys.keepUnseen(pageId, page.data, key)
+    val dropped = page.data.size - data.size
+    if (dropped > 0) metrics.onDuplicatesDropped(dropped)
+    data
+  }
+}
+
+/** The item keys a source has loaded recently, and which page loaded each. */
+private abstract class SeenKeys<Key : Any> {
+
+  private val lock = SynchronizedObject()
+
+  /** Returns the items of the page identified by [pageId] whose keys no other page loaded first. */
+  fun <T> keepUnseen(pageId: Pair<Key?, Key?>, items: List<T>, key: (T) -> Any): List<T> =
+    synchronized(lock) { keepUnseenLocked(pageId, items, key) }
+
+  abstract fun <T> keepUnseenLocked(pageId: Pair<Key?, Key?>, items: List<T>, key: (T) -> Any): List<T>
+}
+
+/** Remembers the keys kept by the pages that loaded the last [maxItems] items. */
+private class ExactSeenKeys<Key : Any>(maxItems: Int) : SeenKeys<Key>() {
+
+  private val owners = HashMap<Any, Pair<Key?, Key?>>()
+  private val keptKeys = LruCache<Pair<Key?, Key?>, List<Any>>(
+    maxEntries = maxItems,
+    maxWeight = maxItems.toLong(),
+    weigher = { it.size.toLong() },
+    onEvicted = ::release,
+  )
+
+  override fun <T> keepUnseenLocked(pageId: Pair<Key?, Key?>, items: List<T>, key: (T) -> Any): List<T> {
+    // Keys the page no longer loads are free for other pages to claim.
+    keptKeys.remove(pageId)?.let { release(pageId, it) }
+    val kept = ArrayList<T>(items.size)
+    val keys = ArrayList<Any>(items.size)
+    for (item in items) {
+      val itemKey = key(item)
+      if (owners.getOrPut(itemKey) { pageId } == pageId) {
+        kept += item
+        keys += itemKey
+      }
+    }
+    keptKeys.put(pageId, keys)
+    return kept
+  }
+
+  private fun release(pageId: Pair<Key?, Key?>, keys: List<Any>) {
+    for (key in keys) {
+      if (owners[key] == pageId) owners.remove(key)
+    }
+  }
+}
+
+/**
+ * Remembers keys in two Bloom filters that rotate every [maxItems] keys, and the hash codes of the
+ * keys each recent page kept so that reloading a page doesn't find its own items.
+ */
+private class BloomSeenKeys<Key : Any>(
+  private val maxItems: Int,
+  private val bitCount: Int,
+) : SeenKeys<Key>() {
+
+  private var filter = BloomFilter(bitCount)
+  private var previousFilter: BloomFilter? = null
+  private var filterKeys = 0
+  private val keptHashes = LruCache<Pair<Key?, Key?>, IntArray>(
+    maxEntries = maxItems,
+    maxWeight = maxItems.toLong(),
+    weigher = { it.size.toLong() },
+  )
+
+  override fun <T> keepUnseenLocked(pageId: Pair<Key?, Key?>, items: List<T>, key: (T) -> Any): List<T> {
+    val previouslyKept = keptHashes[pageId]
+    val kept = ArrayList<T>(items.size)
+    val hashes = IntArray(items.size)
+    for (item in items) {
+      val hash = key(item).hashCode()
+      // Add the hash even when the page kept it before, so that it survives the next rotation.
+      val unseen = add(hash)
+      if (unseen || (previouslyKept != null && previouslyKept.binarySearch(hash) >= 0)) {
+        hashes[kept.size] = hash
+        kept += item
+      }
+    }
+    keptHashes.put(pageId, hashes.copyOf(kept.size).apply { sort() })
+    return kept
+  }
+
+  /** Adds [hash], returning false if it was possibly added within the last two rotations. */
+  private fun add(hash: Int): Boolean {
+    val unseen = filter.add(hash) && previousFilter?.contains(hash) != true
+    if (++filterKeys == maxItems) {
+      previousFilter = filter
+      filter = BloomFilter(bitCount)
+      filterKeys = 0
+    }
+    return unseen
+  }
+}
+
+/** A Bloom filter of hash codes, probed three times by double hashing. Not thread-safe. */
+internal class BloomFilter(private val bitCount: Int) {
+
+  private val words = LongArray(((bitCount + 63L) / 64).toInt())
+
+  /** Adds [hash], returning false if it was possibly added before. */
+  fun add(hash: Int): Boolean = probe(hash, set = true)
+
+  /** Returns true if [hash] was possibly added. */
+  fun contains(hash: Int): Boolean = !probe(hash, set = false)
+
+  /** Returns true if any of [hash]'s bits was clear, setting them if [set]. */
+  private fun probe(hash: Int, set: Boolean): Boolean {
+    // Spread the hash code, since many keys hash to small sequential ints.
+    val mixed = hash * -0x61c88647L
+    val h1 = (mixed ushr 32).toInt()
+    val h2 = mixed.toInt() or 1
+    var clear = false
+    for (i in 0 until PROBE_COUNT) {
+      val bit = ((h1 + i * h2).toLong() and 0xffffffffL) % bitCount
+      val word = (bit ushr 6).toInt()
+      val mask = 1L shl bit.toInt()
+      if ((words[word] and mask) == 0L) {
+        if (set) words[word] = words[word] or mask
+        clear = true
+      }
+    }
+    return clear
+  }
+
+  private companion object {
+    const val PROBE_COUNT = 3
+  }
+}
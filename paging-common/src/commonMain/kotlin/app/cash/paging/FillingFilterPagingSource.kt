@@ -0,0 +1,102 @@
+package app.cash.paging
+
+/**
+ * Returns a [PagingSource] whose items are those of this source that match [predicate], loading
+ * further pages of this source for each load until at least [minPageFill] items match or the end
+ * is reached.
+ *
+ * A selective predicate would otherwise produce near-empty pages, each costing the UI a prefetch
+ * hint and a round trip. The number of source pages each load consumed is reported to [metrics].
+ * Pages report undefined [PagingSourceLoadResultPage.itemsBefore] and
+ * [PagingSourceLoadResultPage.itemsAfter], since the filtered counts beyond each page aren't known.
+ *
+ * APPEND and PREPEND loads are filled with further loads of the same size, the page size. The
+ * page size isn't known on REFRESH, so it's filled with loads of a third of its load size, which is
+ * the page size under the default [PagingConfig.initialLoadSize].
+ */
+fun <Key : Any, T : Any> PagingSource<Key, T>.filterItems(
+  minPageFill: Int,
+  metrics: PagingMetrics = PagingMetrics.None,
+  predicate: (T) -> Boolean,
+): PagingSource<Key, T> = FillingFilterPagingSource(this, minPageFill, metrics, predicate)
+
+internal class FillingFilterPagingSource<Key : Any, T : Any>(
+  private val delegate: PagingSource<Key, T>,
+  private val minPageFill: Int,
+  private val metrics: PagingMetrics,
+  private val predicate: (T) -> Boolean,
+) : PagingSource<Key, T>() {
+
+  /** The unfiltered source pages behind each page, merged into one. */
+  private val originalPages = OriginalPages<Key, T, T>()
+
+  init {
+    require(minPageFill >= 1) { "minPageFill must be at least 1, but was $minPageFill" }
+    invalidateTogetherWith(delegate)
+  }
+
+  override val jumpingSupported: Boolean
+    get() = delegate.jumpingSupported
+
+  override val keyReuseSupported: Boolean
+    get() = delegate.keyReuseSupported
+
+  override suspend fun load(params: PagingSourceLoadParams<Key>): PagingSourceLoadResult<Key, T> {
+    val loadType = params.loadType
+    val result = delegate.load(params)
+    val firstPage = result.pageOrNull() ?: return result
+
+    // PREPEND fills towards the start, REFRESH and APPEND towards the end.
+    val prepend = loadType == LoadType.PREPEND
+    val sourcePages = ArrayDeque<PagingSourceLoadResultPage<Key, T>>()
+    sourcePages += firstPage
+    val kept = firstPage.data.filterTo(ArrayList(), predicate)
+    var edgeKey = if (prepend) firstPage.prevKey else firstPage.nextKey
+    val fillLoadSize = if (loadType == LoadType.REFRESH) {
+      (params.loadSize / DEFAULT_INITIAL_PAGE_MULTIPLIER).coerceAtLeast(1)
+    } else {
+      params.loadSize
+    }
+    while (kept.size < minPageFill && edgeKey != null && !invalid) {
+      val fillParams = createPagingSourceLoadParams(
+        loadType = if (prepend) LoadType.PREPEND else LoadType.APPEND,
+        key = edgeKey,
+        loadSize = fillLoadSize,
+        placeholdersEnabled = params.placeholdersEnabled,
+      )
+      // On an error, return what's loaded. Pager loads from edgeKey next and surfaces the error then.
+      val page = delegate.load(fillParams).pageOrNull() ?: break
+      val pageKept = page.data.filter(predicate)
+      if (prepend) {
+        sourcePages.addFirst(page)
+        kept.addAll(0, pageKept)
+      } else {
+        sourcePages.addLast(page)
+        kept.addAll(pageKept)
+      }
+      edgeKey = if (prepend) page.prevKey else page.nextKey
+    }
+    metrics.onFilteredPageLoaded(loadType, sourcePages.size, kept.size)
+
+    val first = sourcePages.first()
+    val last = sourcePages.last()
+    val page = PagingSourceLoadResultPage(kept, first.prevKey, last.nextKey, COUNT_UNDEFINED, COUNT_UNDEFINED)
+    val original = if (sourcePages.size == 1) {
+      firstPage
+    } else {
+      PagingSourceLoadResultPage(SegmentedList(sourcePages.map { it.data }), first.prevKey, last.nextKey, first.itemsBefore, last.itemsAfter)
+    }
+    originalPages.put(original)
+    return page.asLoadResult()
+  }
+
+  override fun getRefreshKey(state: PagingState<Key, T>): Key? {
+    val originalState = originalPages.originalState(state) ?: return null
+    return delegate.getRefreshKey(originalState)
+  }
+
+  private companion object {
+    /** The default ratio of [PagingConfig.initialLoadSize] to [PagingConfig.pageSize]. */
+    const val DEFAULT_INITIAL_PAGE_MULTIPLIER = 3
+  }
+}
@@ -0,0 +1,99 @@
+package app.cash.paging
+
+/**
+ * Returns a [PagingSource] whose items are those of this source with [transform] applied.
+ *
+ * Chained [mapItems], [filterItems], and [flatMapItems] calls fuse into a single pass over each
+ * loaded page that builds one output list, instead of the list per stage that chaining
+ * [PagingData.map], [PagingData.filter], and [PagingData.flatMap] allocates. The transforms don't
+ * suspend, which also spares each item a continuation; use [mapPages] for work that does.
+ */
+fun <Key : Any, T : Any, R : Any> PagingSource<Key, T>.mapItems(
+  transform: (T) -> R,
+): PagingSource<Key, R> = fuse(ItemStage.Map(transform))
+
+/**
+ * Returns a [PagingSource] whose items are those of this source that match [predicate], fused with
+ * adjacent [mapItems], [filterItems], and [flatMapItems] calls.
+ *
+ * A fused pipeline with any [filterItems] or [flatMapItems] stage reports undefined
+ * [PagingSourceLoadResultPage.itemsBefore] and [PagingSourceLoadResultPage.itemsAfter] on every
+ * page, as [filterPages] does.
+ */
+fun <Key : Any, T : Any> PagingSource<Key, T>.filterItems(
+  predicate: (T) -> Boolean,
+): PagingSource<Key, T> = fuse(ItemStage.Filter(predicate))
+
+/**
+ * Returns a [PagingSource] whose items are those [transform] returns for each item of this source,
+ * fused with adjacent [mapItems], [filterItems], and [flatMapItems] calls.
+ *
+ * As with [filterItems], the fused pipeline reports undefined placeholder counts.
+ */
+fun <Key : Any, T : Any, R : Any> PagingSource<Key, T>.flatMapItems(
+  transform: (T) -> Iterable<R>,
+): PagingSource<Key, R> = fuse(ItemStage.FlatMap(transform))
+
+private fun <Key : Any, T : Any, R : Any> PagingSource<Key, T>.fuse(stage: ItemStage): PagingSource<Key, R> =
+  if (this is FusedPagingSource<Key, *, T>) {
+    FusedPagingSource(source, stages + stage)
+  } else {
+    FusedPagingSource(this, listOf(stage))
+  }
+
+/** A step of a [FusedPagingSource], with its types erased so that stages of any types chain. */
+internal sealed class ItemStage {
+  @Suppress("UNCHECKED_CAST")
+  class Map<T, R>(transform: (T) -> R) : ItemStage() {
+    val transform = transform as (Any?) -> Any?
+  }
+
+  @Suppress("UNCHECKED_CAST")
+  class Filter<T>(predicate: (T) -> Boolean) : ItemStage() {
+    val predicate = predicate as (Any?) -> Boolean
+  }
+
+  @Suppress("UNCHECKED_CAST")
+  class FlatMap<T, R>(transform: (T) -> Iterable<R>) : ItemStage() {
+    val transform = transform as (Any?) -> Iterable<Any?>
+  }
+}
+
+/**
+ * Runs [stages] over each page of [source] in one pass. Placeholder counts pass through only when
+ * every stage is a [ItemStage.Map], since a filter or flat map changes the number of items.
+ */
+internal class FusedPagingSource<Key : Any, T : Any, R : Any>(
+  val source: PagingSource<Key, T>,
+  val stages: List<ItemStage>,
+) : TransformingPagingSource<Key, T, R>(
+  source,
+  preservesCounts = stages.all { it is ItemStage.Map<*, *> },
+  { page -> applyStages(stages, page.data) },
+)
+
+@Suppress("UNCHECKED_CAST")
+private fun <T : Any, R : Any> applyStages(stages: List<ItemStage>, items: List<T>): List<R> {
+  val output = ArrayList<Any?>(items.size)
+  for (item in items) {
+    applyStages(stages, 0, item, output)
+  }
+  return output as List<R>
+}
+
+private fun applyStages(stages: List<ItemStage>, from: Int, item: Any?, output: MutableList<Any?>) {
+  var value = item
+  for (i in from until stages.size) {
+    when (val stage = stages[i]) {
+      is ItemStage.Map<*, *> -> value = stage.transform(value)
+      is ItemStage.Filter<*> -> if (!stage.predicate(value)) return
+      is ItemStage.FlatMap<*, *> -> {
+        for (element in stage.transform(value)) {
+          applyStages(stages, i + 1, element, output)
+        }
+        return
+      }
+    }
+  }
+  output += value
+}
@@ -0,0 +1,217 @@
+package app.cash.paging
+
+import kotlinx.atomicfu.locks.SynchronizedObject
+import kotlinx.atomicfu.locks.synchronized
+import kotlin.math.ceil
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.microseconds
+
+/**
+ * [PagingMetrics] that aggregates events in memory, for assertions in tests and for periodically
+ * exporting to a dashboard. Each getter returns a snapshot.
+ */
+class HistogramPagingMetrics : PagingMetrics {
+
+  private val lock = SynchronizedObject()
+  private val loadTypeCount = LoadType.values().size
+  private val loadLatencies = Array(loadTypeCount) { DurationHistogram() }
+  private val hintToLoadDelays = Array(loadTypeCount) { DurationHistogram() }
+  private val loadsStarted = IntArray(loadTypeCount)
+  private val loadErrors = IntArray(loadTypeCount)
+  private val loadsInvalid = IntArray(loadTypeCount)
+  private val droppedPagesReloaded = IntArray(loadTypeCount)
+  private val itemsLoaded = LongArray(loadTypeCount)
+  private val filteredPages = IntArray(loadTypeCount)
+  private val filterSourcePages = IntArray(loadTypeCount)
+  private val filteredItems = LongArray(loadTypeCount)
+  private var duplicates = 0L
+  private val diffTimes = DurationHistogram()
+  private var diffItems = 0L
+  private var placeholders = 0
+
+  override fun onLoadStarted(loadType: LoadType) {
+    synchronized(lock) { loadsStarted[loadType.ordinal]++ }
+  }
+
+  override fun onLoadFinished(loadType: LoadType, duration: Duration, itemCount: Int) {
+    synchronized(lock) {
+      loadLatencies[loadType.ordinal].record(duration)
+      itemsLoaded[loadType.ordinal] += itemCount.toLong()
+    }
+  }
+
+  override fun onLoadError(loadType: LoadType, duration: Duration, error: Throwable) {
+    synchronized(lock) {
+      loadLatencies[loadType.ordinal].record(duration)
+      loadErrors[loadType.ordinal]++
+    }
+  }
+
+  override fun onLoadInvalid(loadType: LoadType, duration: Duration) {
+    synchronized(lock) {
+      loadLatencies[loadType.ordinal].record(duration)
+      loadsInvalid[loadType.ordinal]++
+    }
+  }
+
+  override fun onDroppedPageReloaded(loadType: LoadType) {
+    synchronized(lock) { droppedPagesReloaded[loadType.ordinal]++ }
+  }
+
+  override fun onHintToLoad(loadType: LoadType, delay: Duration) {
+    synchronized(lock) { hintToLoadDelays[loadType.ordinal].record(delay) }
+  }
+
+  override fun onFilteredPageLoaded(loadType: LoadType, sourcePageCount: Int, itemCount: Int) {
+    synchronized(lock) {
+      filteredPages[loadType.ordinal]++
+      filterSourcePages[loadType.ordinal] += sourcePageCount
+      filteredItems[loadType.ordinal] += itemCount.toLong()
+    }
+  }
+
+  override fun onDuplicatesDropped(count: Int) {
+    synchronized(lock) { duplicates += count }
+  }
+
+  override fun onDiffComputed(duration: Duration, itemCount: Int) {
+    synchronized(lock) {
+      diffTimes.record(duration)
+      diffItems += itemCount.toLong()
+    }
+  }
+
+  override fun onPlaceholdersPresented(placeholdersBefore: Int, placeholdersAfter: Int) {
+    synchronized(lock) { placeholders = placeholdersBefore + placeholdersAfter }
+  }
+
+  /** The latency of loads of [loadType] that completed, successfully or not. */
+  fun loadLatency(loadType: LoadType): DurationHistogram =
+    synchronized(lock) { loadLatencies[loadType.ordinal].copy() }
+
+  fun hintToLoadDelay(loadType: LoadType): DurationHistogram =
+    synchronized(lock) { hintToLoadDelays[loadType.ordinal].copy() }
+
+  val diffTime: DurationHistogram
+    get() = synchronized(lock) { diffTimes.copy() }
+
+  /** The number of loads of [loadType] started, including those still in flight or cancelled. */
+  fun loadsStarted(loadType: LoadType): Int = synchronized(lock) { loadsStarted[loadType.ordinal] }
+
+  fun loadErrors(loadType: LoadType): Int = synchronized(lock) { loadErrors[loadType.ordinal] }
+
+  /** The number of loads of [loadType] that found their source invalid. */
+  fun loadsInvalid(loadType: LoadType): Int = synchronized(lock) { loadsInvalid[loadType.ordinal] }
+
+  fun droppedPagesReloaded(loadType: LoadType): Int = synchronized(lock) { droppedPagesReloaded[loadType.ordinal] }
+
+  fun itemsLoaded(loadType: LoadType): Long = synchronized(lock) { itemsLoaded[loadType.ordinal] }
+
+  /** The number of pages of [loadType] returned by sources filtered with a minimum page fill. */
+  fun filteredPages(loadType: LoadType): Int = synchronized(lock) { filteredPages[loadType.ordinal] }
+
+  /** The number of source pages consumed to fill [filteredPages]. */
+  fun filterSourcePages(loadType: LoadType): Int = synchronized(lock) { filterSourcePages[loadType.ordinal] }
+
+  /** The number of items in the [filteredPages], after filtering. */
+  fun filteredItems(loadType: LoadType): Long = synchronized(lock) { filteredItems[loadType.ordinal] }
+
+  /** The number of items dropped by sources made distinct by item key. */
+  val duplicatesDropped: Long
+    get() = synchronized(lock) { duplicates }
+
+  /** The number of items in the lists diffed, summed over the [diffTime] samples. */
+  val itemsDiffed: Long
+    get() = synchronized(lock) { diffItems }
+
+  /** The number of placeholders in the most recently presented generation. */
+  val placeholderCount: Int
+    get() = synchronized(lock) { placeholders }
+
+  fun reset() {
+    synchronized(lock) {
+      loadLatencies.forEach { it.clear() }
+      hintToLoadDelays.forEach { it.clear() }
+      loadsStarted.fill(0)
+      loadErrors.fill(0)
+      loadsInvalid.fill(0)
+      droppedPagesReloaded.fill(0)
+      itemsLoaded.fill(0)
+      filteredPages.fill(0)
+      filterSourcePages.fill(0)
+      filteredItems.fill(0)
+      duplicates = 0
+      diffTimes.clear()
+      diffItems = 0
+      placeholders = 0
+    }
+  }
+}
+
+/**
+ * A histogram of durations in power-of-two buckets of microseconds, so percentiles are accurate to
+ * within a factor of two.
+ */
+class DurationHistogram internal constructor() {
+
+  /** Bucket i counts durations under 2^i microseconds; the last bucket counts everything longer. */
+  private val buckets = IntArray(BUCKET_COUNT)
+
+  var count: Int = 0
+    private set
+
+  var total: Duration = Duration.ZERO
+    private set
+
+  var max: Duration = Duration.ZERO
+    private set
+
+  val mean: Duration
+    get() = if (count == 0) Duration.ZERO else total / count
+
+  /**
+   * Returns an upper bound of the duration that [fraction] of the recorded durations are within,
+   * such as 0.99 for the 99th percentile.
+   */
+  fun percentile(fraction: Double): Duration {
+    require(fraction in 0.0..1.0) { "fraction must be between 0 and 1: $fraction" }
+    if (count == 0) return Duration.ZERO
+    val target = maxOf(1L, ceil(fraction * count).toLong())
+    var seen = 0L
+    for (i in buckets.indices) {
+      seen += buckets[i]
+      if (seen >= target) return if (i == BUCKET_COUNT - 1) max else minOf(max, (1L shl i).microseconds)
+    }
+    return max
+  }
+
+  internal fun record(duration: Duration) {
+    val micros = duration.inWholeMicroseconds
+    val bucket = if (micros <= 0) 0 else minOf(BUCKET_COUNT - 1, 64 - micros.countLeadingZeroBits())
+    buckets[bucket]++
+    count++
+    total += duration
+    if (duration > max) max = duration
+  }
+
+  internal fun clear() {
+    buckets.fill(0)
+    count = 0
+    total = Duration.ZERO
+    max = Duration.ZERO
+  }
+
+  internal fun copy(): DurationHistogram = DurationHistogram().also {
+    buckets.copyInto(it.buckets)
+    it.count = count
+    it.total = total
+    it.max = max
+  }
+
+  override fun toString(): String =
+    "DurationHistogram(count=$count, mean=$mean, p50=${percentile(0.5)}, p99=${percentile(0.99)}, max=$max)"
+
+  private companion object {
+    const val BUCKET_COUNT = 32
+  }
+}
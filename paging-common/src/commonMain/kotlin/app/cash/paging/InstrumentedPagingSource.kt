@@ -0,0 +1,85 @@
+package app.cash.paging
+
+import kotlinx.atomicfu.locks.SynchronizedObject
+import kotlinx.atomicfu.locks.synchronized
+import kotlinx.coroutines.CancellationException
+import kotlin.time.TimeSource
+
+/**
+ * A [PagingSource] that reports the loads of [delegate] to [metrics].
+ *
+ * If [hintTimer] is given, each APPEND and PREPEND load also reports how long it started after the
+ * read that called for it.
+ *
+ * Pass the [PagingConfig.maxSize] of the [Pager] as [maxSize] to report pages that are reloaded
+ * after being dropped. The pages loaded within twice that many items are remembered to recognize
+ * them; a page reloaded after more loads than that isn't reported.
+ */
+class InstrumentedPagingSource<Key : Any, Value : Any>(
+  private val delegate: PagingSource<Key, Value>,
+  private val metrics: PagingMetrics,
+  private val hintTimer: PagingHintTimer? = null,
+  maxSize: Int = MAX_SIZE_UNBOUNDED,
+) : PagingSource<Key, Value>() {
+
+  private val lock = SynchronizedObject()
+
+  /**
+   * The prevKey and nextKey of the pages loaded last, which identify a page when it's loaded again,
+   * weighed by item count. Null when [maxSize] is unbounded, as the Pager never drops pages then.
+   */
+  private val loadedPages = if (maxSize == MAX_SIZE_UNBOUNDED) {
+    null
+  } else {
+    LruCache<Pair<Key?, Key?>, Int>(Int.MAX_VALUE, 2L * maxSize, { it.toLong() })
+  }
+
+  init {
+    invalidateTogetherWith(delegate)
+  }
+
+  override val jumpingSupported: Boolean
+    get() = delegate.jumpingSupported
+
+  override val keyReuseSupported: Boolean
+    get() = delegate.keyReuseSupported
+
+  override suspend fun load(params: PagingSourceLoadParams<Key>): PagingSourceLoadResult<Key, Value> {
+    if (metrics === PagingMetrics.None) return delegate.load(params)
+
+    val loadType = params.loadType
+    hintTimer?.takeDelay(loadType)?.let { metrics.onHintToLoad(loadType, it) }
+    metrics.onLoadStarted(loadType)
+    val start = TimeSource.Monotonic.markNow()
+    val result = try {
+      delegate.load(params)
+    } catch (e: CancellationException) {
+      throw e
+    } catch (e: Throwable) {
+      metrics.onLoadError(loadType, start.elapsedNow(), e)
+      throw e
+    }
+    val duration = start.elapsedNow()
+
+    val page = result.pageOrNull()
+    when {
+      page != null -> {
+        metrics.onLoadFinished(loadType, duration, page.data.size)
+        if (loadedPages != null) {
+          val reloaded = synchronized(lock) {
+            val pageId = page.prevKey to page.nextKey
+            val loadedBefore = loadedPages[pageId] != null
+            loadedPages.put(pageId, page.data.size)
+            loadedBefore
+          }
+          if (reloaded) metrics.onDroppedPageReloaded(loadType)
+        }
+      }
+      result.isInvalid() -> metrics.onLoadInvalid(loadType, duration)
+      else -> metrics.onLoadError(loadType, duration, result.errorOrNull()!!)
+    }
+    return result
+  }
+
+  override fun getRefreshKey(state: PagingState<Key, Value>): Key? = delegate.getRefreshKey(state)
+}
@@ -0,0 +1,131 @@
+package app.cash.paging
+
+import kotlin.jvm.JvmInline
+
+/**
+ * A [PagingSource] for offset- or id-based pagination whose [load] reads and writes [Int] keys
+ * without boxing them.
+ *
+ * [Pager] stores keys as objects, so [page] reuses the box of a recently returned key rather than
+ * allocating a new one for every `prevKey` and `nextKey`. Adjacent pages share keys (the `nextKey` of
+ * one page is the `key` of the next APPEND), so in steady state each key is boxed once.
+ */
+abstract class IntKeyPagingSource<Value : Any> : PagingSource<Int, Value>() {
+
+  private val boxedKeys = arrayOfNulls<Int>(BOXED_KEY_CACHE_SIZE)
+
+  final override suspend fun load(params: PagingSourceLoadParams<Int>): PagingSourceLoadResult<Int, Value> =
+    load(IntKeyLoadParams(params))
+
+  abstract suspend fun load(params: IntKeyLoadParams): PagingSourceLoadResult<Int, Value>
+
+  /** Creates a page whose [prevKey] and [nextKey] are [NO_INT_KEY] when there's no more data. */
+  protected fun page(
+    data: List<Value>,
+    prevKey: Int,
+    nextKey: Int,
+    itemsBefore: Int = COUNT_UNDEFINED,
+    itemsAfter: Int = COUNT_UNDEFINED,
+  ): PagingSourceLoadResult<Int, Value> = PagingSourceLoadResultPage(
+    data,
+    box(prevKey),
+    box(nextKey),
+    itemsBefore,
+    itemsAfter,
+  ).asLoadResult()
+
+  /** Returns a shared box for [key], or null for [NO_INT_KEY]. Use this for [getRefreshKey] too. */
+  protected fun box(key: Int): Int? {
+    if (key == NO_INT_KEY) return null
+    val slot = key and (BOXED_KEY_CACHE_SIZE - 1)
+    val cached = boxedKeys[slot]
+    if (cached != null && cached == key) return cached
+    val boxed: Int? = key
+    boxedKeys[slot] = boxed
+    return boxed
+  }
+}
+
+/** Read-only view over a [PagingSourceLoadParams] that exposes its key unboxed. */
+@JvmInline
+value class IntKeyLoadParams internal constructor(private val params: PagingSourceLoadParams<Int>) {
+
+  val loadType: LoadType
+    get() = params.loadType
+
+  /** The requested key, or [NO_INT_KEY] for a REFRESH without an initial or refresh key. */
+  val key: Int
+    get() = params.key ?: NO_INT_KEY
+
+  val loadSize: Int
+    get() = params.loadSize
+
+  val placeholdersEnabled: Boolean
+    get() = params.placeholdersEnabled
+}
+
+/**
+ * A [PagingSource] for id- or timestamp-based pagination whose [load] reads and writes [Long] keys
+ * without boxing them. See [IntKeyPagingSource].
+ */
+abstract class LongKeyPagingSource<Value : Any> : PagingSource<Long, Value>() {
+
+  private val boxedKeys = arrayOfNulls<Long>(BOXED_KEY_CACHE_SIZE)
+
+  final override suspend fun load(params: PagingSourceLoadParams<Long>): PagingSourceLoadResult<Long, Value> =
+    load(LongKeyLoadParams(params))
+
+  abstract suspend fun load(params: LongKeyLoadParams): PagingSourceLoadResult<Long, Value>
+
+  /** Creates a page whose [prevKey] and [nextKey] are [NO_LONG_KEY] when there's no more data. */
+  protected fun page(
+    data: List<Value>,
+    prevKey: Long,
+    nextKey: Long,
+    itemsBefore: Int = COUNT_UNDEFINED,
+    itemsAfter: Int = COUNT_UNDEFINED,
+  ): PagingSourceLoadResult<Long, Value> = PagingSourceLoadResultPage(
+    data,
+    box(prevKey),
+    box(nextKey),
+    itemsBefore,
+    itemsAfter,
+  ).asLoadResult()
+
+  /** Returns a shared box for [key], or null for [NO_LONG_KEY]. Use this for [getRefreshKey] too. */
+  protected fun box(key: Long): Long? {
+    if (key == NO_LONG_KEY) return null
+    val slot = key.toInt() and (BOXED_KEY_CACHE_SIZE - 1)
+    val cached = boxedKeys[slot]
+    if (cached != null && cached == key) return cached
+    val boxed: Long? = key
+    boxedKeys[slot] = boxed
+    return boxed
+  }
+}
+
+/** Read-only view over a [PagingSourceLoadParams] that exposes its key unboxed. */
+@JvmInline
+value class LongKeyLoadParams internal constructor(private val params: PagingSourceLoadParams<Long>) {
+
+  val loadType: LoadType
+    get() = params.loadType
+
+  /** The requested key, or [NO_LONG_KEY] for a REFRESH without an initial or refresh key. */
+  val key: Long
+    get() = params.key ?: NO_LONG_KEY
+
+  val loadSize: Int
+    get() = params.loadSize
+
+  val placeholdersEnabled: Boolean
+    get() = params.placeholdersEnabled
+}
+
+const val NO_INT_KEY: Int = Int.MIN_VALUE
+
+const val NO_LONG_KEY: Long = Long.MIN_VALUE
+
+// A power of two, so that a slot is the low bits of the key. Covers the keys of every page a
+// typical prefetch window keeps in flight.
+private const val BOXED_KEY_CACHE_SIZE = 64
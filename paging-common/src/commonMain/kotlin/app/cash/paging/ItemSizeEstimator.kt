@@ -0,0 +1,10 @@
+package app.cash.paging
+
+/** Estimates how many bytes of heap an item retains, for budgeting memory in bytes instead of items. */
+fun interface ItemSizeEstimator<in Value : Any> {
+  fun estimateBytes(item: Value): Long
+}
+
+/** Returns a [PageCache] `sizeOf` that sums the estimated size of a page's items. */
+fun <Key : Any, Value : Any> ItemSizeEstimator<Value>.pageSizeOf(): (PagingSourceLoadResultPage<Key, Value>) -> Long =
+  { page -> page.data.sumOf { estimateBytes(it) } }
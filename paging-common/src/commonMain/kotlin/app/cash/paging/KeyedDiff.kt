@@ -0,0 +1,203 @@
+package app.cash.paging
+
+import kotlin.time.Duration
+import kotlin.time.TimeSource
+
+/**
+ * The updates that turn one list into another, as computed by [computeKeyedDiff], and the mapping
+ * of old positions to new ones.
+ */
+internal class KeyedDiff(
+  private val prefix: Int,
+  private val oldSuffixStart: Int,
+  private val newSuffixStart: Int,
+  /** New position of each old item between the prefix and suffix, or -1 if removed. */
+  private val middleOldToNew: IntArray?,
+  /** Triples of (update, position, count). */
+  private val updates: IntArray,
+  private val updateCount: Int,
+) {
+
+  /** Replays the updates to [callback], with positions shifted by [offset]. */
+  fun dispatchTo(callback: DifferCallback, offset: Int) {
+    for (i in 0 until updateCount step 3) {
+      val position = updates[i + 1] + offset
+      val count = updates[i + 2]
+      when (updates[i]) {
+        UPDATE_INSERT -> callback.onInserted(position, count)
+        UPDATE_REMOVE -> callback.onRemoved(position, count)
+        UPDATE_CHANGE -> callback.onChanged(position, count)
+      }
+    }
+  }
+
+  /** Returns the new position of the item at [oldPosition], or -1 if it was removed. */
+  fun newPosition(oldPosition: Int): Int = when {
+    oldPosition < prefix -> oldPosition
+    oldPosition >= oldSuffixStart -> oldPosition - oldSuffixStart + newSuffixStart
+    middleOldToNew == null -> -1
+    else -> middleOldToNew[oldPosition - prefix]
+  }
+
+  internal class Builder {
+    private var updates = IntArray(48)
+    private var size = 0
+
+    /** The position in the list as updated so far. */
+    var position = 0
+
+    fun remove(count: Int) {
+      if (count > 0) add(UPDATE_REMOVE, position, count)
+    }
+
+    fun insert(count: Int) {
+      if (count > 0) {
+        add(UPDATE_INSERT, position, count)
+        position += count
+      }
+    }
+
+    /** Advances past an item kept in place, recording a change unless [same]. */
+    fun keep(same: Boolean) {
+      if (!same) {
+        val last = size - 3
+        if (last >= 0 && updates[last] == UPDATE_CHANGE && updates[last + 1] + updates[last + 2] == position) {
+          updates[last + 2]++
+        } else {
+          add(UPDATE_CHANGE, position, 1)
+        }
+      }
+      position++
+    }
+
+    private fun add(update: Int, position: Int, count: Int) {
+      if (size + 3 > updates.size) updates = updates.copyOf(updates.size * 2)
+      updates[size] = update
+      updates[size + 1] = position
+      updates[size + 2] = count
+      size += 3
+    }
+
+    fun build(
+      prefix: Int,
+      oldSuffixStart: Int,
+      newSuffixStart: Int,
+      middleOldToNew: IntArray?,
+    ) = KeyedDiff(prefix, oldSuffixStart, newSuffixStart, middleOldToNew, updates, size)
+  }
+
+  private companion object {
+    const val UPDATE_INSERT = 0
+    const val UPDATE_REMOVE = 1
+    const val UPDATE_CHANGE = 2
+  }
+}
+
+/**
+ * Diffs a list of [oldCount] items against one of [newCount] items, matching items by key.
+ *
+ * The common prefix and suffix are trimmed first, so a generation that only appended, prepended,
+ * or removed items at either end is diffed in a single pass with no allocation per item. Whatever
+ * remains is matched through a hash map of new keys, and the longest run of matched items that
+ * kept their relative order is found in O(k log k). Items outside that run are removed and
+ * inserted, which makes this a longest common subsequence over keys, which are assumed unique.
+ *
+ * Returns null if the diff takes longer than [timeBudget], in which case the caller should
+ * present the new list as a whole.
+ */
+internal fun computeKeyedDiff(
+  oldCount: Int,
+  newCount: Int,
+  oldKey: (Int) -> Any?,
+  newKey: (Int) -> Any?,
+  sameContents: (oldPosition: Int, newPosition: Int) -> Boolean,
+  timeBudget: Duration,
+): KeyedDiff? {
+  val start = TimeSource.Monotonic.markNow()
+  fun overBudget(step: Int) = (step and 0x3ff) == 0 && start.elapsedNow() > timeBudget
+
+  var prefix = 0
+  val maxPrefix = minOf(oldCount, newCount)
+  while (prefix < maxPrefix && oldKey(prefix) == newKey(prefix)) {
+    prefix++
+  }
+  var suffix = 0
+  val maxSuffix = maxPrefix - prefix
+  while (suffix < maxSuffix && oldKey(oldCount - 1 - suffix) == newKey(newCount - 1 - suffix)) {
+    suffix++
+  }
+  val oldSuffixStart = oldCount - suffix
+  val newSuffixStart = newCount - suffix
+
+  val builder = KeyedDiff.Builder()
+  for (i in 0 until prefix) {
+    if (overBudget(i)) return null
+    builder.keep(sameContents(i, i))
+  }
+
+  var middleOldToNew: IntArray? = null
+  if (prefix == oldSuffixStart || prefix == newSuffixStart) {
+    // Only insertions or only removals between the prefix and suffix.
+    builder.remove(oldSuffixStart - prefix)
+    builder.insert(newSuffixStart - prefix)
+  } else {
+    val oldMiddleCount = oldSuffixStart - prefix
+    val newPositions = HashMap<Any?, Int>(newSuffixStart - prefix)
+    for (n in prefix until newSuffixStart) {
+      if (overBudget(n)) return null
+      newPositions[newKey(n)] = n
+    }
+    val oldToNew = IntArray(oldMiddleCount)
+    for (i in 0 until oldMiddleCount) {
+      if (overBudget(i)) return null
+      oldToNew[i] = newPositions[oldKey(prefix + i)] ?: -1
+    }
+    middleOldToNew = oldToNew
+
+    // Patience sorting: tails[l] is the index into oldToNew ending the best run of length l + 1.
+    val tails = IntArray(oldMiddleCount)
+    val previous = IntArray(oldMiddleCount)
+    var length = 0
+    for (i in 0 until oldMiddleCount) {
+      if (overBudget(i)) return null
+      val n = oldToNew[i]
+      if (n < 0) continue
+      var low = 0
+      var high = length
+      while (low < high) {
+        val mid = (low + high) ushr 1
+        if (oldToNew[tails[mid]] < n) low = mid + 1 else high = mid
+      }
+      previous[i] = if (low > 0) tails[low - 1] else -1
+      tails[low] = i
+      if (low == length) length++
+    }
+    val kept = BooleanArray(oldMiddleCount)
+    var i = if (length > 0) tails[length - 1] else -1
+    while (i >= 0) {
+      kept[i] = true
+      i = previous[i]
+    }
+
+    var oldNext = prefix
+    var newNext = prefix
+    for (k in 0 until oldMiddleCount) {
+      if (!kept[k]) continue
+      val o = prefix + k
+      val n = oldToNew[k]
+      builder.remove(o - oldNext)
+      builder.insert(n - newNext)
+      builder.keep(sameContents(o, n))
+      oldNext = o + 1
+      newNext = n + 1
+    }
+    builder.remove(oldSuffixStart - oldNext)
+    builder.insert(newSuffixStart - newNext)
+  }
+
+  for (i in 0 until suffix) {
+    if (overBudget(i)) return null
+    builder.keep(sameContents(oldSuffixStart + i, newSuffixStart + i))
+  }
+  return builder.build(prefix, oldSuffixStart, newSuffixStart, middleOldToNew)
+}
@@ -0,0 +1,116 @@
+package app.cash.paging
+
+import kotlinx.coroutines.withContext
+import kotlin.coroutines.CoroutineContext
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.milliseconds
+import kotlin.time.TimeSource
+
+/**
+ * A [PagingDataDiffer] that diffs each new generation against the last by item key, on
+ * [workerContext], and reports the difference to [differCallback].
+ *
+ * Generations that only grew or shrank at either end are diffed in time proportional to the change
+ * plus one scan of the list. If a diff takes longer than [diffTimeBudget], the new generation is
+ * presented as a removal of every old item and an insertion of every new one.
+ *
+ * @param itemKey returns a key that's unique to the item within the list, such as a database id.
+ * @param areContentsTheSame whether an item with the same key needs to be redrawn.
+ * @param metrics receives the time taken by each diff and the placeholders of each generation.
+ */
+open class KeyedPagingDataDiffer<T : Any>(
+  private val differCallback: DifferCallback,
+  mainContext: CoroutineContext,
+  private val workerContext: CoroutineContext,
+  private val itemKey: (T) -> Any,
+  private val areContentsTheSame: (oldItem: T, newItem: T) -> Boolean = { oldItem, newItem -> oldItem == newItem },
+  private val diffTimeBudget: Duration = 100.milliseconds,
+  private val metrics: PagingMetrics = PagingMetrics.None,
+) : PagingDataDiffer<T>(differCallback, mainContext, null) {
+
+  override suspend fun presentNewList(
+    previousList: NullPaddedList<T>,
+    newList: NullPaddedList<T>,
+    lastAccessedIndex: Int,
+    onListPresentable: () -> Unit,
+  ): Int? {
+    metrics.onPlaceholdersPresented(newList.placeholdersBefore, newList.placeholdersAfter)
+    when {
+      previousList.size == 0 -> {
+        onListPresentable()
+        differCallback.onInserted(0, newList.size)
+        return null
+      }
+      newList.size == 0 -> {
+        onListPresentable()
+        differCallback.onRemoved(0, previousList.size)
+        return null
+      }
+    }
+
+    val diff = withContext(workerContext) {
+      val start = if (metrics !== PagingMetrics.None) TimeSource.Monotonic.markNow() else null
+      val diff = computeKeyedDiff(
+        oldCount = previousList.storageCount,
+        newCount = newList.storageCount,
+        oldKey = { itemKey(previousList.getFromStorage(it)) },
+        newKey = { itemKey(newList.getFromStorage(it)) },
+        sameContents = { oldPosition, newPosition ->
+          val oldItem = previousList.getFromStorage(oldPosition)
+          val newItem = newList.getFromStorage(newPosition)
+          oldItem === newItem || areContentsTheSame(oldItem, newItem)
+        },
+        timeBudget = diffTimeBudget,
+      )
+      if (start != null) metrics.onDiffComputed(start.elapsedNow(), newList.storageCount)
+      diff
+    }
+    onListPresentable()
+
+    if (diff == null) {
+      differCallback.onRemoved(0, previousList.size)
+      differCallback.onInserted(0, newList.size)
+      return null
+    }
+
+    val oldBefore = previousList.placeholdersBefore
+    val newBefore = newList.placeholdersBefore
+    dispatchPlaceholders(0, oldBefore, newBefore)
+    diff.dispatchTo(differCallback, offset = newBefore)
+    dispatchPlaceholders(newBefore + newList.storageCount, previousList.placeholdersAfter, newList.placeholdersAfter)
+
+    return transformAnchorIndex(previousList, newList, lastAccessedIndex, diff)
+  }
+
+  private fun dispatchPlaceholders(position: Int, oldCount: Int, newCount: Int) {
+    when {
+      newCount > oldCount -> differCallback.onInserted(position, newCount - oldCount)
+      newCount < oldCount -> differCallback.onRemoved(position, oldCount - newCount)
+    }
+  }
+
+  /** Returns the position in [newList] of the item that was at [lastAccessedIndex] in [previousList]. */
+  private fun transformAnchorIndex(
+    previousList: NullPaddedList<T>,
+    newList: NullPaddedList<T>,
+    lastAccessedIndex: Int,
+    diff: KeyedDiff,
+  ): Int {
+    val storageIndex = lastAccessedIndex - previousList.placeholdersBefore
+    val index = when {
+      storageIndex < 0 -> lastAccessedIndex
+      storageIndex >= previousList.storageCount -> {
+        storageIndex - previousList.storageCount + newList.placeholdersBefore + newList.storageCount
+      }
+      else -> {
+        val newStorageIndex = diff.newPosition(storageIndex)
+        if (newStorageIndex >= 0) {
+          newList.placeholdersBefore + newStorageIndex
+        } else {
+          lastAccessedIndex - previousList.placeholdersBefore + newList.placeholdersBefore
+        }
+      }
+    }
+    return index.coerceIn(0, newList.size - 1)
+  }
+}
@@ -0,0 +1,65 @@
+package app.cash.paging
+
+import kotlinx.atomicfu.atomic
+
+/**
+ * A set of listeners that threads add to and remove from without locking, and that [forEach]
+ * dispatches to without allocating, for listeners that change rarely but are notified on every
+ * event, such as the metrics of a [MulticastPagingMetrics].
+ *
+ * The listeners are held in an array that's replaced by a copy on each change, so [add] and
+ * [remove] cost O(listeners) and retry when they race, and [forEach] iterates whichever array was
+ * current when it started. A listener added more than once is notified once per add.
+ */
+internal class ListenerRegistry<T : Any> {
+
+  private val listeners = atomic(EMPTY)
+
+  val size: Int
+    get() = listeners.value.size
+
+  fun add(listener: T) {
+    while (true) {
+      val current = listeners.value
+      if (listeners.compareAndSet(current, current + listener)) return
+    }
+  }
+
+  /** Removes one registration of [listener], returning false if there was none. */
+  fun remove(listener: T): Boolean {
+    while (true) {
+      val current = listeners.value
+      val index = current.indexOf(listener)
+      if (index < 0) return false
+      val updated = if (current.size == 1) {
+        EMPTY
+      } else {
+        arrayOfNulls<Any>(current.size - 1).also {
+          current.copyInto(it, 0, 0, index)
+          current.copyInto(it, index, index + 1)
+        }
+      }
+      if (listeners.compareAndSet(current, updated)) return true
+    }
+  }
+
+  fun clear() {
+    listeners.value = EMPTY
+  }
+
+  /** Calls [action] with each listener registered when this call started. */
+  inline fun forEach(action: (T) -> Unit) {
+    val snapshot = snapshot()
+    for (i in snapshot.indices) {
+      @Suppress("UNCHECKED_CAST")
+      action(snapshot[i] as T)
+    }
+  }
+
+  @PublishedApi
+  internal fun snapshot(): Array<Any?> = listeners.value
+
+  private companion object {
+    val EMPTY = arrayOfNulls<Any>(0)
+  }
+}
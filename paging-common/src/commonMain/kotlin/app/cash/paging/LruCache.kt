@@ -0,0 +1,73 @@
+package app.cash.paging
+
+/**
+ * A least-recently-used map bounded both by entry count and by the total [weigher] weight of its
+ * values. Not thread-safe; callers guard it.
+ */
+internal class LruCache<K : Any, V : Any>(
+  private val maxEntries: Int,
+  private val maxWeight: Long,
+  private val weigher: (V) -> Long,
+  private val onEvicted: (K, V) -> Unit = { _, _ -> },
+) {
+
+  init {
+    require(maxEntries > 0) { "maxEntries must be positive, but was $maxEntries" }
+    require(maxWeight > 0) { "maxWeight must be positive, but was $maxWeight" }
+  }
+
+  // LinkedHashMap iterates in insertion order on every target, so re-inserting on access keeps the
+  // least recently used entry first.
+  private val map = LinkedHashMap<K, V>()
+
+  var weight: Long = 0
+    private set
+
+  val size: Int
+    get() = map.size
+
+  val keys: Set<K>
+    get() = map.keys
+
+  operator fun get(key: K): V? {
+    val value = map.remove(key) ?: return null
+    map[key] = value
+    return value
+  }
+
+  fun put(key: K, value: V) {
+    map.remove(key)?.let { weight -= weigher(it) }
+    map[key] = value
+    weight += weigher(value)
+    trim()
+  }
+
+  fun remove(key: K): V? = map.remove(key)?.also { weight -= weigher(it) }
+
+  /** Removes the entries that [predicate] matches, without counting as an access. */
+  fun removeAll(predicate: (K, V) -> Boolean) {
+    val iterator = map.entries.iterator()
+    while (iterator.hasNext()) {
+      val entry = iterator.next()
+      if (predicate(entry.key, entry.value)) {
+        iterator.remove()
+        weight -= weigher(entry.value)
+      }
+    }
+  }
+
+  fun clear() {
+    map.clear()
+    weight = 0
+  }
+
+  private fun trim() {
+    val iterator = map.entries.iterator()
+    while ((map.size > maxEntries || weight > maxWeight) && iterator.hasNext()) {
+      val eldest = iterator.next()
+      iterator.remove()
+      weight -= weigher(eldest.value)
+      onEvicted(eldest.key, eldest.value)
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package app.cash.paging
+
+import kotlinx.atomicfu.locks.SynchronizedObject
+import kotlinx.atomicfu.locks.synchronized
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.emitAll
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.map
+
+/**
+ * Returns a flow that applies [transform] to the items of each [PagingData] like [PagingData.map],
+ * but reuses the result from an earlier generation for an item whose [key] is cached and which is
+ * equal to the item it was transformed from. After an invalidation, only the items that changed
+ * are transformed again.
+ *
+ * Up to [capacity] results are kept, least recently used first out, for each collection of the
+ * returned flow. Apply [cachedIn] after this operator so that collectors share one cache.
+ */
+fun <T : Any, K : Any, R : Any> Flow<PagingData<T>>.mapCached(
+  key: (T) -> K,
+  capacity: Int,
+  transform: suspend (T) -> R,
+): Flow<PagingData<R>> = flow {
+  val cache = TransformCache<K, T, R>(capacity)
+  emitAll(
+    map { pagingData ->
+      pagingData.map { item -> cache.getOrTransform(key(item), item, transform) }
+    },
+  )
+}
+
+private class TransformCache<K : Any, T : Any, R : Any>(capacity: Int) {
+
+  private val lock = SynchronizedObject()
+  private val results = LruCache<K, Result<T, R>>(capacity, Long.MAX_VALUE, { 0 })
+
+  suspend fun getOrTransform(key: K, item: T, transform: suspend (T) -> R): R {
+    synchronized(lock) { results[key] }?.let { cached ->
+      if (cached.item == item) return cached.result
+    }
+    // Transform outside the lock so that slow transforms of different items overlap.
+    val result = transform(item)
+    synchronized(lock) { results.put(key, Result(item, result)) }
+    return result
+  }
+
+  private class Result<T, R>(val item: T, val result: R)
+}
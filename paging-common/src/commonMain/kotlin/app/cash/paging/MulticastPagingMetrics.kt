@@ -0,0 +1,67 @@
+package app.cash.paging
+
+import kotlin.time.Duration
+
+/**
+ * [PagingMetrics] that forwards every event to each of the metrics [add]ed to it, so that exporters
+ * such as a [HistogramPagingMetrics] and a tracer can be attached and detached while paging runs.
+ *
+ * Metrics are held in a [ListenerRegistry]: [add] and [remove] don't lock and may race events from
+ * any thread, and forwarding an event neither locks nor allocates. An event reaches the metrics
+ * that were added when it started.
+ */
+class MulticastPagingMetrics : PagingMetrics {
+
+  private val metrics = ListenerRegistry<PagingMetrics>()
+
+  /** The number of metrics that events are forwarded to. */
+  val size: Int
+    get() = metrics.size
+
+  fun add(metrics: PagingMetrics) {
+    this.metrics.add(metrics)
+  }
+
+  /** Stops forwarding events to one registration of [metrics], returning false if there was none. */
+  fun remove(metrics: PagingMetrics): Boolean = this.metrics.remove(metrics)
+
+  override fun onLoadStarted(loadType: LoadType) {
+    metrics.forEach { it.onLoadStarted(loadType) }
+  }
+
+  override fun onLoadFinished(loadType: LoadType, duration: Duration, itemCount: Int) {
+    metrics.forEach { it.onLoadFinished(loadType, duration, itemCount) }
+  }
+
+  override fun onLoadError(loadType: LoadType, duration: Duration, error: Throwable) {
+    metrics.forEach { it.onLoadError(loadType, duration, error) }
+  }
+
+  override fun onLoadInvalid(loadType: LoadType, duration: Duration) {
+    metrics.forEach { it.onLoadInvalid(loadType, duration) }
+  }
+
+  override fun onDroppedPageReloaded(loadType: LoadType) {
+    metrics.forEach { it.onDroppedPageReloaded(loadType) }
+  }
+
+  override fun onHintToLoad(loadType: LoadType, delay: Duration) {
+    metrics.forEach { it.onHintToLoad(loadType, delay) }
+  }
+
+  override fun onFilteredPageLoaded(loadType: LoadType, sourcePageCount: Int, itemCount: Int) {
+    metrics.forEach { it.onFilteredPageLoaded(loadType, sourcePageCount, itemCount) }
+  }
+
+  override fun onDuplicatesDropped(count: Int) {
+    metrics.forEach { it.onDuplicatesDropped(count) }
+  }
+
+  override fun onDiffComputed(duration: Duration, itemCount: Int) {
+    metrics.forEach { it.onDiffComputed(duration, itemCount) }
+  }
+
+  override fun onPlaceholdersPresented(placeholdersBefore: Int, placeholdersAfter: Int) {
+    metrics.forEach { it.onPlaceholdersPresented(placeholdersBefore, placeholdersAfter) }
+  }
+}
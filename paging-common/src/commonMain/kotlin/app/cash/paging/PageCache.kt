@@ -0,0 +1,112 @@
+package app.cash.paging
+
+import kotlinx.atomicfu.atomic
+import kotlinx.atomicfu.locks.SynchronizedObject
+import kotlinx.atomicfu.locks.synchronized
+
+/**
+ * A bounded, least-recently-used cache of loaded pages that outlives any single [PagingSource].
+ *
+ * Pages are cached by [LoadType], key, and load size, so they're found again when a later
+ * generation requests the same page. That requires stable page keys, such as page numbers, cursors,
+ * or offsets aligned to the page size.
+ *
+ * If [diskStore] is given, pages are also written through to it, and a page missing from memory is
+ * read back from it. That keeps pages across process restarts and beyond what fits in memory. Disk
+ * reads, writes, and decoding happen outside the lock that guards the in-memory pages, so a hit in
+ * memory never waits on the disk.
+ *
+ * @param maxEntries the number of pages to keep.
+ * @param maxBytes the total [sizeOf] of the pages to keep.
+ * @param sizeOf the estimated size of a page, in bytes.
+ */
+class PageCache<Key : Any, Value : Any>(
+  maxEntries: Int,
+  maxBytes: Long = Long.MAX_VALUE,
+  sizeOf: (PagingSourceLoadResultPage<Key, Value>) -> Long = { 0 },
+  private val diskStore: DiskPageStore<Key, Value>? = null,
+) {
+
+  private val lock = SynchronizedObject()
+  private val pages = LruCache<PageCacheKey<Key>, PagingSourceLoadResultPage<Key, Value>>(maxEntries, maxBytes, sizeOf)
+
+  /**
+   * Counts removals. A page read from or written to disk outside [lock] is only kept if no removal
+   * started in the meantime, so that it can't restore a page that the removal took out.
+   */
+  private val removals = atomic(0L)
+
+  /** The number of cached pages. */
+  val size: Int
+    get() = synchronized(lock) { pages.size }
+
+  /** The total estimated size of the cached pages, in bytes. */
+  val estimatedBytes: Long
+    get() = synchronized(lock) { pages.weight }
+
+  internal operator fun get(key: PageCacheKey<Key>): PagingSourceLoadResultPage<Key, Value>? {
+    val removalsBefore = synchronized(lock) {
+      pages[key]?.let { return it }
+      removals.value
+    }
+    val page = diskStore?.get(key) ?: return null
+    synchronized(lock) {
+      if (removals.value == removalsBefore) pages.put(key, page)
+    }
+    return page
+  }
+
+  /**
+   * Caches [page] unless [isCurrent] returns false. [isCurrent] is checked under the same lock as
+   * removals, so a load that finishes after its generation was invalidated can't restore a page
+   * that was removed along with the invalidation. The page isn't written to disk if a removal
+   * starts before the write does.
+   */
+  internal fun put(
+    key: PageCacheKey<Key>,
+    page: PagingSourceLoadResultPage<Key, Value>,
+    isCurrent: () -> Boolean = { true },
+  ) {
+    val removalsBefore = synchronized(lock) {
+      if (!isCurrent()) return
+      pages.put(key, page)
+      removals.value
+    }
+    diskStore?.put(key, page) { removals.value == removalsBefore }
+  }
+
+  /** Removes the pages loaded with a key that [predicate] matches, including those on disk. */
+  internal fun removeKeys(predicate: (PageCacheKey<Key>) -> Boolean) {
+    synchronized(lock) {
+      removals.incrementAndGet()
+      pages.removeAll { key, _ -> predicate(key) }
+    }
+    diskStore?.removeAll(predicate)
+  }
+
+  /** Removes the pages that [predicate] matches, including those on disk. */
+  internal fun removePages(predicate: (PagingSourceLoadResultPage<Key, Value>) -> Boolean) {
+    synchronized(lock) {
+      removals.incrementAndGet()
+      pages.removeAll { _, page -> predicate(page) }
+    }
+    diskStore?.removeAll { _, page -> predicate(page) }
+  }
+
+  /** Removes every cached page, including those in the disk store. */
+  fun clear() {
+    synchronized(lock) {
+      removals.incrementAndGet()
+      pages.clear()
+    }
+    diskStore?.clear()
+  }
+}
+
+internal data class PageCacheKey<Key : Any>(
+  val loadType: LoadType,
+  val key: Key?,
+  val loadSize: Int,
+) {
+  constructor(params: PagingSourceLoadParams<Key>) : this(params.loadType, params.key, params.loadSize)
+}
@@ -0,0 +1,47 @@
+package app.cash.paging
+
+/**
+ * Converts the keys and items of cached pages to and from bytes, for [DiskPageStore] and
+ * [PagingSnapshotRecorder].
+ */
+interface PageCodec<Key : Any, Value : Any> {
+
+  fun encodeKey(key: Key): ByteArray
+
+  fun decodeKey(bytes: ByteArray): Key
+
+  fun encodeItem(item: Value): ByteArray
+
+  /** Decodes the item stored in [length] bytes of [bytes] starting at [offset]. */
+  fun decodeItem(bytes: ByteArray, offset: Int, length: Int): Value
+}
+
+/** Writes [page]'s keys, placeholder counts, and items. */
+internal fun <Key : Any, Value : Any> PageCodec<Key, Value>.writePage(
+  writer: ByteWriter,
+  page: PagingSourceLoadResultPage<Key, Value>,
+) {
+  writer.writeSizedBytes(page.prevKey?.let(::encodeKey))
+  writer.writeSizedBytes(page.nextKey?.let(::encodeKey))
+  writer.writeInt(page.itemsBefore)
+  writer.writeInt(page.itemsAfter)
+  writer.writeInt(page.data.size)
+  for (item in page.data) {
+    writer.writeSizedBytes(encodeItem(item))
+  }
+}
+
+/** Reads a page that [writePage] wrote. */
+internal fun <Key : Any, Value : Any> PageCodec<Key, Value>.readPage(
+  reader: ByteReader,
+): PagingSourceLoadResultPage<Key, Value> {
+  val prevKey = reader.readSizedBytes()?.let(::decodeKey)
+  val nextKey = reader.readSizedBytes()?.let(::decodeKey)
+  val itemsBefore = reader.readInt()
+  val itemsAfter = reader.readInt()
+  val data = List(reader.readInt()) {
+    val length = reader.skipSizedBytes()
+    decodeItem(reader.bytes, reader.position - length, length)
+  }
+  return PagingSourceLoadResultPage(data, prevKey, nextKey, itemsBefore, itemsAfter)
+}
@@ -0,0 +1,152 @@
+package app.cash.paging
+
+import kotlinx.atomicfu.locks.SynchronizedObject
+import kotlinx.atomicfu.locks.synchronized
+
+/**
+ * A memory budget in bytes for the pages a [Pager] keeps.
+ *
+ * Create each [PagingConfig] with [pagingConfig], whose `maxSize` is the budget divided by the
+ * average item size measured so far, or [initialItemBytes] before any item was measured. A [Pager]
+ * keeps its config, so that `maxSize` is only a starting point: wrap each [PagingSource] in a
+ * [ByteBudgetPagingSource] given the same `maxSize`, which measures loaded items with [estimator]
+ * and enforces the budget as item sizes and heap headroom change. Share one budget between pagers
+ * so that later ones start from a measured average.
+ *
+ * @param maxBytes the budget for loaded items.
+ * @param initialItemBytes the item size assumed before any item has been measured.
+ * @param heapHeadroomBytes if given, the budget is also capped to [heapFraction] of the heap that's
+ * available, as `heapHeadroomBytes` returns on the JVM. It's sampled on every load.
+ */
+class PagingByteBudget<Value : Any>(
+  private val maxBytes: Long,
+  private val estimator: ItemSizeEstimator<Value>,
+  private val initialItemBytes: Long = 1024,
+  private val heapHeadroomBytes: (() -> Long)? = null,
+  private val heapFraction: Double = 0.25,
+) {
+
+  init {
+    require(maxBytes > 0) { "maxBytes must be positive" }
+    require(initialItemBytes > 0) { "initialItemBytes must be positive" }
+    require(heapFraction > 0 && heapFraction <= 1) { "heapFraction must be in (0, 1]" }
+  }
+
+  private val lock = SynchronizedObject()
+  private var measuredItems = 0L
+  private var measuredBytes = 0L
+
+  /** The budget in bytes, after capping it to the heap headroom at the time of reading. */
+  val budgetBytes: Long
+    get() {
+      val headroom = heapHeadroomBytes?.invoke() ?: return maxBytes
+      return minOf(maxBytes, (headroom * heapFraction).toLong())
+    }
+
+  /** The average estimated size of the items measured so far, or [initialItemBytes] before any. */
+  val averageItemBytes: Long
+    get() = synchronized(lock) {
+      if (measuredItems == 0L) initialItemBytes else maxOf(1, measuredBytes / measuredItems)
+    }
+
+  /**
+   * Returns the [PagingConfig.maxSize] that fits the budget at the current average item size and
+   * heap headroom. It's never less than the minimum that [PagingConfig] accepts for [pageSize] and
+   * [prefetchDistance], so a budget too small for even that many items is exceeded rather than
+   * failing.
+   */
+  fun maxSize(pageSize: Int, prefetchDistance: Int = pageSize): Int {
+    val items = budgetBytes / averageItemBytes
+    val minimum = pageSize + 2 * prefetchDistance
+    return items.coerceIn(minimum.toLong(), Int.MAX_VALUE.toLong()).toInt()
+  }
+
+  /** Returns a [PagingConfig] whose `maxSize` is [maxSize]. */
+  fun pagingConfig(
+    pageSize: Int,
+    prefetchDistance: Int = pageSize,
+    enablePlaceholders: Boolean = true,
+    initialLoadSize: Int = pageSize * 3,
+    jumpThreshold: Int = COUNT_UNDEFINED,
+  ): PagingConfig = createPagingConfig(
+    pageSize = pageSize,
+    prefetchDistance = prefetchDistance,
+    enablePlaceholders = enablePlaceholders,
+    initialLoadSize = initialLoadSize,
+    maxSize = maxSize(pageSize, prefetchDistance),
+    jumpThreshold = jumpThreshold,
+  )
+
+  /** Adds [items] to the average item size, and returns their estimated size in bytes. */
+  internal fun measure(items: List<Value>): Long {
+    var bytes = 0L
+    for (item in items) bytes += estimator.estimateBytes(item)
+    synchronized(lock) {
+      measuredItems += items.size
+      measuredBytes += bytes
+    }
+    return bytes
+  }
+}
+
+/**
+ * A [PagingSource] that measures the items [delegate] loads for [budget], and invalidates itself
+ * when the pages its [Pager] keeps exceed the budget.
+ *
+ * The [Pager] drops pages silently, so the pages it keeps are taken to be those that loaded the
+ * last [maxSize] items, which should be the `maxSize` of its [PagingConfig]. Once their estimated
+ * size exceeds [PagingByteBudget.budgetBytes], as it's capped by heap headroom at that load, this
+ * source invalidates itself. The next generation then holds only its initial load around the last
+ * accessed item, until it's loaded its way back up to the budget. A budget smaller than twice the
+ * initial load is exceeded rather than enforced, so that generations don't replace each other on
+ * every load.
+ */
+class ByteBudgetPagingSource<Key : Any, Value : Any>(
+  private val delegate: PagingSource<Key, Value>,
+  private val budget: PagingByteBudget<Value>,
+  maxSize: Int = MAX_SIZE_UNBOUNDED,
+) : PagingSource<Key, Value>() {
+
+  private val lock = SynchronizedObject()
+  private var refreshBytes = 0L
+  private var keptBytes = 0L
+
+  /** The item count and bytes of the pages that loaded the last [maxSize] items, by their keys. */
+  private val keptPages = LruCache<Pair<Key?, Key?>, PageSize>(
+    maxEntries = Int.MAX_VALUE,
+    maxWeight = if (maxSize == MAX_SIZE_UNBOUNDED) Long.MAX_VALUE else maxSize.toLong(),
+    weigher = { it.items.toLong() },
+    onEvicted = { _, size -> keptBytes -= size.bytes },
+  )
+
+  init {
+    invalidateTogetherWith(delegate)
+  }
+
+  override val jumpingSupported: Boolean
+    get() = delegate.jumpingSupported
+
+  override val keyReuseSupported: Boolean
+    get() = delegate.keyReuseSupported
+
+  override suspend fun load(params: PagingSourceLoadParams<Key>): PagingSourceLoadResult<Key, Value> {
+    val result = delegate.load(params)
+    val page = result.pageOrNull() ?: return result
+    val bytes = budget.measure(page.data)
+    val budgetBytes = budget.budgetBytes
+    val overBudget = synchronized(lock) {
+      if (params.loadType == LoadType.REFRESH) refreshBytes = bytes
+      val pageId = page.prevKey to page.nextKey
+      keptPages.remove(pageId)?.let { keptBytes -= it.bytes }
+      keptBytes += bytes
+      keptPages.put(pageId, PageSize(page.data.size, bytes))
+      keptBytes > budgetBytes && 2 * refreshBytes <= budgetBytes
+    }
+    if (overBudget) invalidate()
+    return result
+  }
+
+  override fun getRefreshKey(state: PagingState<Key, Value>): Key? = delegate.getRefreshKey(state)
+
+  private class PageSize(val items: Int, val bytes: Long)
+}
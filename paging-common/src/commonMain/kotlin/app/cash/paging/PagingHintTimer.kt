@@ -0,0 +1,47 @@
+package app.cash.paging
+
+import kotlinx.atomicfu.locks.SynchronizedObject
+import kotlinx.atomicfu.locks.synchronized
+import kotlin.time.Duration
+import kotlin.time.TimeMark
+import kotlin.time.TimeSource
+
+/**
+ * Times the delay between the UI reading an item within [prefetchDistance] of either end of the
+ * presented list and the next load at that end, for [InstrumentedPagingSource] to report as
+ * [PagingMetrics.onHintToLoad].
+ *
+ * Call [onItemAccessed] wherever the UI reads an item from its [PagingDataDiffer], and pass the same
+ * [PagingConfig.prefetchDistance] that the [Pager] uses.
+ */
+class PagingHintTimer(private val prefetchDistance: Int) {
+
+  private val lock = SynchronizedObject()
+  private var prependHint: TimeMark? = null
+  private var appendHint: TimeMark? = null
+
+  fun onItemAccessed(index: Int, itemCount: Int) {
+    val prepend = index < prefetchDistance
+    val append = index >= itemCount - prefetchDistance
+    if (!prepend && !append) return
+    synchronized(lock) {
+      // Keep the earliest read, which is the one that sent the hint.
+      if (prepend && prependHint == null) prependHint = TimeSource.Monotonic.markNow()
+      if (append && appendHint == null) appendHint = TimeSource.Monotonic.markNow()
+    }
+  }
+
+  /** Returns the time since the oldest read that a load of [loadType] answers, if any. */
+  internal fun takeDelay(loadType: LoadType): Duration? = synchronized(lock) {
+    when (loadType) {
+      LoadType.PREPEND -> prependHint.also { prependHint = null }
+      LoadType.APPEND -> appendHint.also { appendHint = null }
+      else -> {
+        // A refresh replaces the list that the reads were against.
+        prependHint = null
+        appendHint = null
+        null
+      }
+    }
+  }?.elapsedNow()
+}
@@ -0,0 +1,59 @@
+package app.cash.paging
+
+import kotlin.time.Duration
+
+/**
+ * Receives structured events about paging, for monitoring load latency, reloaded pages, diffing,
+ * and placeholders in production.
+ *
+ * Wrap each [PagingSource] in an [InstrumentedPagingSource] to report loads, and give the same
+ * metrics to a [KeyedPagingDataDiffer] to report presented generations. Every event has an empty
+ * default, so implementations only override the ones they need. [None] is the default everywhere
+ * and skips measuring altogether. To report to several metrics at once, add them to a
+ * [MulticastPagingMetrics] and pass that instead.
+ *
+ * Events may arrive concurrently from several threads.
+ */
+interface PagingMetrics {
+
+  /** A load of [loadType] started. */
+  fun onLoadStarted(loadType: LoadType) {}
+
+  /** A load of [loadType] returned a page of [itemCount] items after [duration]. */
+  fun onLoadFinished(loadType: LoadType, duration: Duration, itemCount: Int) {}
+
+  /** A load of [loadType] returned or threw [error] after [duration]. */
+  fun onLoadError(loadType: LoadType, duration: Duration, error: Throwable) {}
+
+  /** A load of [loadType] found its [PagingSource] invalid after [duration]. */
+  fun onLoadInvalid(loadType: LoadType, duration: Duration) {}
+
+  /**
+   * A page that was dropped to stay within [PagingConfig.maxSize] was loaded again from the
+   * [loadType] end. The Pager drops pages silently, so drops are only seen this way, once the page
+   * is reloaded: pages that are never scrolled back to, or that are reloaded long after they were
+   * first loaded, aren't counted.
+   */
+  fun onDroppedPageReloaded(loadType: LoadType) {}
+
+  /** A load of [loadType] started [delay] after the UI first read an item within prefetch distance. */
+  fun onHintToLoad(loadType: LoadType, delay: Duration) {}
+
+  /**
+   * A load of [loadType] from a source filtered with a minimum page fill consumed [sourcePageCount]
+   * pages of its delegate to return [itemCount] items.
+   */
+  fun onFilteredPageLoaded(loadType: LoadType, sourcePageCount: Int, itemCount: Int) {}
+
+  /** A source made distinct by item key dropped [count] items of a page that were loaded before. */
+  fun onDuplicatesDropped(count: Int) {}
+
+  /** Diffing a new generation of [itemCount] loaded items against the last took [duration]. */
+  fun onDiffComputed(duration: Duration, itemCount: Int) {}
+
+  /** A generation was presented with these placeholder counts. */
+  fun onPlaceholdersPresented(placeholdersBefore: Int, placeholdersAfter: Int) {}
+
+  /** Ignores every event. */
+  companion object None : PagingMetrics
+}
@@ -0,0 +1,254 @@
+package app.cash.paging
+
+import kotlinx.atomicfu.locks.SynchronizedObject
+import kotlinx.atomicfu.locks.synchronized
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.launch
+
+/** Stores the one snapshot a [PagingSnapshotRecorder] keeps, such as in a file or a database row. */
+interface PagingSnapshotStorage {
+
+  /** Returns the snapshot last written, or null if there's none. */
+  suspend fun read(): ByteArray?
+
+  suspend fun write(snapshot: ByteArray)
+
+  /** Deletes the snapshot, so that [read] returns null. */
+  suspend fun delete()
+}
+
+/**
+ * Records the pages loaded by the latest generation of a [Pager], so that the next launch can show
+ * them while the first load is still in flight.
+ *
+ * Create the [Pager] with a factory from [pagingSourceFactory], and call [save] when the app goes to
+ * the background. On the next launch, the first source answers its initial load with the saved
+ * pages at once. In [scope] it reloads the saved generation's initial load, with the same key and
+ * load size, and once that succeeds invalidates itself, since any of the saved pages may be stale.
+ * The next generation loads normally from [PagingSource.getRefreshKey], except that an initial
+ * load asking for the reloaded key and load size is answered with the reloaded page. Present the
+ * pages with a [KeyedPagingDataDiffer] so that only the items that changed are redrawn when the
+ * fresh generation replaces the snapshot.
+ *
+ * Up to [maxPages] contiguous pages around the latest load are recorded, along with the keys and
+ * placeholder counts that loading continues from.
+ */
+class PagingSnapshotRecorder<Key : Any, Value : Any>(
+  private val codec: PageCodec<Key, Value>,
+  private val storage: PagingSnapshotStorage,
+  private val maxPages: Int = 10,
+) {
+
+  init {
+    require(maxPages >= 1) { "maxPages must be at least 1, but was $maxPages" }
+  }
+
+  private val lock = SynchronizedObject()
+  private var generation: PagingSource<Key, Value>? = null
+  private val pages = ArrayDeque<PagingSourceLoadResultPage<Key, Value>>()
+  private var refresh: RecordedRefresh<Key, Value>? = null
+  private var warmStarted = false
+  private var pendingRefresh: RecordedRefresh<Key, Value>? = null
+
+  /**
+   * Returns a factory of [PagingSource]s from [pagingSourceFactory] whose pages are recorded. The
+   * first source it creates starts from the saved snapshot, if there is one.
+   */
+  fun pagingSourceFactory(
+    scope: CoroutineScope,
+    pagingSourceFactory: () -> PagingSource<Key, Value>,
+  ): () -> PagingSource<Key, Value> = {
+    val warmStart = synchronized(lock) { !warmStarted.also { warmStarted = true } }
+    SnapshotPagingSource(pagingSourceFactory(), this, if (warmStart) scope else null)
+  }
+
+  /** Writes the recorded pages to [storage], replacing the last snapshot. */
+  suspend fun save() {
+    val snapshot = synchronized(lock) {
+      val refresh = refresh ?: return
+      val writer = ByteWriter()
+      writer.writeInt(FORMAT_VERSION)
+      writer.writeSizedBytes(refresh.key?.let(codec::encodeKey))
+      writer.writeInt(refresh.loadSize)
+      codec.writePage(writer, refresh.page)
+      writer.writeInt(pages.size)
+      for (page in pages) {
+        codec.writePage(writer, page)
+      }
+      writer.toByteArray()
+    }
+    storage.write(snapshot)
+  }
+
+  /**
+   * Returns the saved snapshot, or null if there's none. A snapshot that can't be decoded, such as
+   * a truncated one or one from another format version, is deleted and treated as missing.
+   */
+  internal suspend fun readSnapshot(): Snapshot<Key, Value>? {
+    val bytes = storage.read() ?: return null
+    val snapshot = try {
+      decodeSnapshot(bytes)
+    } catch (e: Exception) {
+      // A corrupt snapshot isn't worth failing the initial load over.
+      null
+    }
+    if (snapshot == null) storage.delete()
+    return snapshot
+  }
+
+  private fun decodeSnapshot(bytes: ByteArray): Snapshot<Key, Value>? {
+    val reader = ByteReader(bytes)
+    if (reader.readInt() != FORMAT_VERSION) return null
+    val refreshKey = reader.readSizedBytes()?.let(codec::decodeKey)
+    val refreshLoadSize = reader.readInt()
+    val refreshPage = codec.readPage(reader)
+    val pages = List(reader.readInt()) { codec.readPage(reader) }
+    if (pages.isEmpty()) return null
+    val first = pages.first()
+    val last = pages.last()
+    return Snapshot(
+      refresh = RecordedRefresh(refreshKey, refreshLoadSize, refreshPage),
+      page = PagingSourceLoadResultPage(SegmentedList(pages.map { it.data }), first.prevKey, last.nextKey, first.itemsBefore, last.itemsAfter),
+    )
+  }
+
+  internal fun onLoaded(
+    source: PagingSource<Key, Value>,
+    params: PagingSourceLoadParams<Key>,
+    page: PagingSourceLoadResultPage<Key, Value>,
+  ) {
+    synchronized(lock) {
+      when (params.loadType) {
+        LoadType.REFRESH -> startGeneration(source, RecordedRefresh(params.key, params.loadSize, page), page)
+        LoadType.APPEND -> {
+          // Pages reloaded after the Pager dropped them aren't adjacent to what's recorded.
+          if (generation !== source || pages.last().nextKey != params.key) return
+          pages.addLast(page)
+          if (pages.size > maxPages) pages.removeFirst()
+        }
+        else -> {
+          if (generation !== source || pages.first().prevKey != params.key) return
+          pages.addFirst(page)
+          if (pages.size > maxPages) pages.removeLast()
+        }
+      }
+    }
+  }
+
+  /**
+   * Starts recording the generation of [source], whose initial load was answered with [page] rather
+   * than loaded. [refresh] is the load that [page] is verified or reloaded with.
+   */
+  internal fun onRefreshed(
+    source: PagingSource<Key, Value>,
+    refresh: RecordedRefresh<Key, Value>,
+    page: PagingSourceLoadResultPage<Key, Value>,
+  ) {
+    synchronized(lock) { startGeneration(source, refresh, page) }
+  }
+
+  private fun startGeneration(
+    source: PagingSource<Key, Value>,
+    refresh: RecordedRefresh<Key, Value>,
+    page: PagingSourceLoadResultPage<Key, Value>,
+  ) {
+    generation = source
+    this.refresh = refresh
+    pages.clear()
+    pages.addLast(page)
+  }
+
+  /** Hands the initial load of the next generation a page that was reloaded in the background. */
+  internal fun setPendingRefresh(refresh: RecordedRefresh<Key, Value>) {
+    synchronized(lock) { pendingRefresh = refresh }
+  }
+
+  /**
+   * Returns the page reloaded in the background if it was loaded with [params]' key and load size,
+   * or null if there's none or the initial load asks for another position. Either way the page is
+   * only offered once.
+   */
+  internal fun takePendingRefresh(params: PagingSourceLoadParams<Key>): RecordedRefresh<Key, Value>? {
+    val refresh = synchronized(lock) {
+      pendingRefresh.also { pendingRefresh = null }
+    } ?: return null
+    return refresh.takeIf { it.key == params.key && it.loadSize == params.loadSize }
+  }
+
+  /** A saved snapshot: the recorded pages merged into [page], and the initial load to verify. */
+  internal class Snapshot<Key : Any, Value : Any>(
+    val refresh: RecordedRefresh<Key, Value>,
+    val page: PagingSourceLoadResultPage<Key, Value>,
+  )
+
+  /** The key and load size of a generation's initial load, and the [page] it returned. */
+  internal class RecordedRefresh<Key : Any, Value : Any>(
+    val key: Key?,
+    val loadSize: Int,
+    val page: PagingSourceLoadResultPage<Key, Value>,
+  )
+
+  private companion object {
+    const val FORMAT_VERSION = 2
+  }
+}
+
+/**
+ * Records the pages [delegate] loads to [recorder]. If [warmStartScope] is given, the initial load
+ * is answered from the saved snapshot and reloaded from [delegate] in that scope.
+ */
+private class SnapshotPagingSource<Key : Any, Value : Any>(
+  private val delegate: PagingSource<Key, Value>,
+  private val recorder: PagingSnapshotRecorder<Key, Value>,
+  private val warmStartScope: CoroutineScope?,
+) : PagingSource<Key, Value>() {
+
+  init {
+    invalidateTogetherWith(delegate)
+  }
+
+  override val jumpingSupported: Boolean
+    get() = delegate.jumpingSupported
+
+  override val keyReuseSupported: Boolean
+    get() = delegate.keyReuseSupported
+
+  override suspend fun load(params: PagingSourceLoadParams<Key>): PagingSourceLoadResult<Key, Value> {
+    if (params.loadType == LoadType.REFRESH) {
+      val snapshot = if (warmStartScope != null) {
+        recorder.readSnapshot()?.also { snapshot ->
+          warmStartScope.launch { refresh(params, snapshot.refresh) }
+        }
+      } else {
+        recorder.takePendingRefresh(params)?.let { PagingSnapshotRecorder.Snapshot(it, it.page) }
+      }
+      if (snapshot != null) {
+        recorder.onRefreshed(this, snapshot.refresh, snapshot.page)
+        return snapshot.page.asLoadResult()
+      }
+    }
+    val result = delegate.load(params)
+    result.pageOrNull()?.let { recorder.onLoaded(this, params, it) }
+    return result
+  }
+
+  override fun getRefreshKey(state: PagingState<Key, Value>): Key? = delegate.getRefreshKey(state)
+
+  /**
+   * Reloads the saved generation's initial load and then invalidates this source, so that no page
+   * served from the snapshot outlives the time it takes to load it fresh. Comparing only the
+   * reloaded page would leave the other saved pages unchecked, so the next generation reloads them
+   * as the UI reaches them instead.
+   */
+  private suspend fun refresh(
+    params: PagingSourceLoadParams<Key>,
+    recorded: PagingSnapshotRecorder.RecordedRefresh<Key, Value>,
+  ) {
+    if (invalid) return
+    val reloadParams = createPagingSourceLoadParams(LoadType.REFRESH, recorded.key, recorded.loadSize, params.placeholdersEnabled)
+    // If the reload fails, as when offline, keep the snapshot rather than replace it with an error.
+    val page = delegate.load(reloadParams).pageOrNull() ?: return
+    recorder.setPendingRefresh(PagingSnapshotRecorder.RecordedRefresh(recorded.key, recorded.loadSize, page))
+    invalidate()
+  }
+}
@@ -0,0 +1,10 @@
+package app.cash.paging
+
+/**
+ * Ties the lifetime of a wrapping [PagingSource] to the [delegate] it loads from: invalidating
+ * either one invalidates the other.
+ */
+internal fun PagingSource<*, *>.invalidateTogetherWith(delegate: PagingSource<*, *>) {
+  delegate.registerInvalidatedCallback(::invalidate)
+  registerInvalidatedCallback(delegate::invalidate)
+}
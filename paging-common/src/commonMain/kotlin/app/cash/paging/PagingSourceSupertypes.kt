@@ -0,0 +1,46 @@
+package app.cash.paging
+
+// In commonMain, the nested-class typealiases don't know their superclasses (KT-27412), although
+// every target does. These helpers keep the corresponding casts in one place.
+
+@Suppress("CAST_NEVER_SUCCEEDS", "USELESS_CAST", "KotlinRedundantDiagnosticSuppress")
+internal fun <Key : Any, Value : Any> PagingSourceLoadResultPage<Key, Value>.asLoadResult(): PagingSourceLoadResult<Key, Value> =
+  this as PagingSourceLoadResult<Key, Value>
+
+@Suppress("CAST_NEVER_SUCCEEDS", "USELESS_CAST", "KotlinRedundantDiagnosticSuppress")
+internal fun <Key : Any, Value : Any> PagingSourceLoadResultError<Key, Value>.asLoadResult(): PagingSourceLoadResult<Key, Value> =
+  this as PagingSourceLoadResult<Key, Value>
+
+@Suppress("CAST_NEVER_SUCCEEDS", "USELESS_CAST", "KotlinRedundantDiagnosticSuppress")
+internal fun <Key : Any, Value : Any> PagingSourceLoadResultInvalid<Key, Value>.asLoadResult(): PagingSourceLoadResult<Key, Value> =
+  this as PagingSourceLoadResult<Key, Value>
+
+@Suppress("UNCHECKED_CAST")
+internal fun <Key : Any, Value : Any> PagingSourceLoadResult<Key, Value>.pageOrNull(): PagingSourceLoadResultPage<Key, Value>? =
+  (this as Any) as? PagingSourceLoadResultPage<Key, Value>
+
+internal val PagingSourceLoadParams<*>.loadType: LoadType
+  get() = when (this as Any) {
+    is PagingSourceLoadParamsAppend<*> -> LoadType.APPEND
+    is PagingSourceLoadParamsPrepend<*> -> LoadType.PREPEND
+    else -> LoadType.REFRESH
+  }
+
+@Suppress("CAST_NEVER_SUCCEEDS", "USELESS_CAST", "KotlinRedundantDiagnosticSuppress")
+internal fun <Key : Any> createPagingSourceLoadParams(
+  loadType: LoadType,
+  key: Key?,
+  loadSize: Int,
+  placeholdersEnabled: Boolean,
+): PagingSourceLoadParams<Key> = when (loadType) {
+  LoadType.APPEND -> PagingSourceLoadParamsAppend(key!!, loadSize, placeholdersEnabled) as PagingSourceLoadParams<Key>
+  LoadType.PREPEND -> PagingSourceLoadParamsPrepend(key!!, loadSize, placeholdersEnabled) as PagingSourceLoadParams<Key>
+  else -> PagingSourceLoadParamsRefresh(key, loadSize, placeholdersEnabled) as PagingSourceLoadParams<Key>
+}
+
+internal fun PagingSourceLoadResult<*, *>.isInvalid(): Boolean =
+  (this as Any) is PagingSourceLoadResultInvalid<*, *>
+
+@Suppress("UNCHECKED_CAST")
+internal fun PagingSourceLoadResult<*, *>.errorOrNull(): Throwable? =
+  ((this as Any) as? PagingSourceLoadResultError<Any, Any>)?.throwable
@@ -0,0 +1,218 @@
+package app.cash.paging
+
+import kotlinx.atomicfu.atomic
+import kotlinx.atomicfu.locks.SynchronizedObject
+import kotlinx.atomicfu.locks.synchronized
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.withContext
+
+/**
+ * Returns a [PagingSource] whose pages are those of this source with [transform] applied to each
+ * page as a whole, rather than to each item as [PagingData.map] does. [transform] receives the
+ * loaded page with its keys, so that it can enrich the page with one batched query or call.
+ *
+ * [transform] must return one item per item of the page, in the same order.
+ */
+fun <Key : Any, T : Any, R : Any> PagingSource<Key, T>.mapPages(
+  transform: suspend (page: PagingSourceLoadResultPage<Key, T>) -> List<R>,
+): PagingSource<Key, R> = TransformingPagingSource(this, preservesCounts = true) { page ->
+  transform(page).also {
+    check(it.size == page.data.size) {
+      "mapPages transform returned ${it.size} items for a page of ${page.data.size}. Use filterPages to drop items."
+    }
+  }
+}
+
+/**
+ * Returns a [PagingSource] whose pages hold the items of this source's pages that [filter]
+ * returns, which receives each loaded page with its keys as a whole.
+ *
+ * Pages report undefined [PagingSourceLoadResultPage.itemsBefore] and
+ * [PagingSourceLoadResultPage.itemsAfter], since the filtered counts beyond each page aren't known,
+ * even for a page that kept all of its items.
+ */
+fun <Key : Any, T : Any> PagingSource<Key, T>.filterPages(
+  filter: suspend (page: PagingSourceLoadResultPage<Key, T>) -> List<T>,
+): PagingSource<Key, T> = TransformingPagingSource(this, preservesCounts = false, filter)
+
+/**
+ * Returns a [PagingSource] whose items are those of this source with [transform] applied, running
+ * up to [concurrency] transforms of each page's items in parallel on [dispatcher].
+ *
+ * Each page is split into [concurrency] contiguous runs of items that are transformed in parallel,
+ * so the page keeps its order. Suited to CPU-bound work such as decoding images or rendering
+ * markdown, which [PagingData.map] would run one item at a time on the collecting dispatcher.
+ */
+fun <Key : Any, T : Any, R : Any> PagingSource<Key, T>.mapConcurrently(
+  concurrency: Int,
+  dispatcher: CoroutineDispatcher = Dispatchers.Default,
+  transform: suspend (T) -> R,
+): PagingSource<Key, R> {
+  require(concurrency >= 1) { "concurrency must be at least 1, but was $concurrency" }
+  return TransformingPagingSource(this, preservesCounts = true) { page ->
+    val items = page.data
+    val runs = minOf(concurrency, items.size)
+    if (runs <= 1) {
+      withContext(dispatcher) { items.map { transform(it) } }
+    } else {
+      coroutineScope {
+        List(runs) { run ->
+          async(dispatcher) {
+            val from = items.size * run / runs
+            val to = items.size * (run + 1) / runs
+            List(to - from) { transform(items[from + it]) }
+          }
+        }.awaitAll().flatten()
+      }
+    }
+  }
+}
+
+/**
+ * Applies [transform] to the pages of [delegate], keeping the original pages so that
+ * [getRefreshKey] can hand [delegate] a [PagingState] of the items it loaded.
+ *
+ * If [preservesCounts], [transform] returns one item per item and each page keeps its placeholder
+ * counts. Otherwise pages report undefined counts: the counts of [delegate] are of its unfiltered
+ * items, and the Pager only trims placeholders by the size of each page when they're undefined.
+ *
+ * This source only registers for [delegate]'s invalidation on its first load, so that wrappers that
+ * are never loaded, such as those [mapItems] fuses into the next stage, leave no callback behind on
+ * [delegate]. Should [delegate] already be invalid by then, the callback runs at once.
+ */
+internal open class TransformingPagingSource<Key : Any, T : Any, R : Any>(
+  private val delegate: PagingSource<Key, T>,
+  private val preservesCounts: Boolean,
+  private val transform: suspend (page: PagingSourceLoadResultPage<Key, T>) -> List<R>,
+) : PagingSource<Key, R>() {
+
+  private val originalPages = OriginalPages<Key, T, R>()
+  private val followsDelegate = atomic(false)
+
+  init {
+    registerInvalidatedCallback(delegate::invalidate)
+  }
+
+  override val jumpingSupported: Boolean
+    get() = delegate.jumpingSupported
+
+  override val keyReuseSupported: Boolean
+    get() = delegate.keyReuseSupported
+
+  @Suppress("UNCHECKED_CAST")
+  override suspend fun load(params: PagingSourceLoadParams<Key>): PagingSourceLoadResult<Key, R> {
+    if (followsDelegate.compareAndSet(false, true)) {
+      delegate.registerInvalidatedCallback(::invalidate)
+    }
+    val result = delegate.load(params)
+    // Errors and invalid results hold no items.
+    val page = result.pageOrNull() ?: return result as PagingSourceLoadResult<Key, R>
+    val data = transform(page)
+    originalPages.put(page)
+    return PagingSourceLoadResultPage(
+      data,
+      page.prevKey,
+      page.nextKey,
+      if (preservesCounts) page.itemsBefore else COUNT_UNDEFINED,
+      if (preservesCounts) page.itemsAfter else COUNT_UNDEFINED,
+    ).asLoadResult()
+  }
+
+  override fun getRefreshKey(state: PagingState<Key, R>): Key? {
+    val originalState = originalPages.originalState(state) ?: return null
+    return delegate.getRefreshKey(originalState)
+  }
+}
+
+/**
+ * The untransformed page behind each page of a transforming source, by its prevKey and nextKey.
+ *
+ * Only the originals of the [MAX_PAGES] pages loaded last are kept, rather than every page of the
+ * generation, so that pages the Pager dropped for [PagingConfig.maxSize] don't stay reachable.
+ * Those are the pages nearest the latest access, where the anchor of a refresh is. The anchor's page
+ * is found through a [PagingStateIndex], so with thousands of pages held a refresh key costs
+ * O(log pages) plus the kept originals, rather than a walk over every page.
+ */
+internal class OriginalPages<Key : Any, T : Any, R : Any> {
+
+  private val lock = SynchronizedObject()
+  private val pages = LruCache<Pair<Key?, Key?>, PagingSourceLoadResultPage<Key, T>>(MAX_PAGES, Long.MAX_VALUE, { 0 })
+  private val index = PagingStateIndex<Key, R>()
+
+  /** Records [original] as the original of the page with the same keys. */
+  fun put(original: PagingSourceLoadResultPage<Key, T>) {
+    synchronized(lock) { pages.put(original.prevKey to original.nextKey, original) }
+  }
+
+  /**
+   * Returns the [PagingState] of the originals of [state]'s pages, or null if the original of the
+   * anchor's page is no longer kept. If some other originals aren't kept, the state is narrowed to
+   * the pages around the anchor whose originals are, with the pages before them as placeholders.
+   */
+  fun originalState(state: PagingState<Key, R>): PagingState<Key, T>? {
+    if (state.pages.isEmpty()) return state.withOriginalPages(0, 0, emptyList())
+    val originals = ArrayDeque<PagingSourceLoadResultPage<Key, T>>()
+    val (from, itemsBeforeFrom) = synchronized(lock) {
+      fun originalOf(pageIndex: Int) = state.pages[pageIndex].let { pages[it.prevKey to it.nextKey] }
+
+      val anchorIndex = state.anchorPosition?.let { index.pageIndexOf(state, it) } ?: 0
+      originals += originalOf(anchorIndex) ?: return null
+      var first = anchorIndex
+      while (first > 0) {
+        originals.addFirst(originalOf(first - 1) ?: break)
+        first--
+      }
+      var end = anchorIndex + 1
+      while (end < state.pages.size) {
+        originals.addLast(originalOf(end) ?: break)
+        end++
+      }
+      first to index.itemCountBefore(state, first)
+    }
+    return state.withOriginalPages(from, itemsBeforeFrom, originals)
+  }
+
+  private companion object {
+    const val MAX_PAGES = 64
+  }
+}
+
+/**
+ * Returns the [PagingState] of [originalPages], which the pages of this state from index [from]
+ * were transformed from one for one, with the anchor position mapped onto them. The pages before
+ * [from], which hold [itemsBeforeFrom] items, become placeholders.
+ */
+internal fun <Key : Any, T : Any, R : Any> PagingState<Key, R>.withOriginalPages(
+  from: Int,
+  itemsBeforeFrom: Int,
+  originalPages: List<PagingSourceLoadResultPage<Key, T>>,
+): PagingState<Key, T> {
+  val leading = leadingPlaceholderCount(pages, config) + itemsBeforeFrom
+  val originalLeading = leadingPlaceholderCount(originalPages, config)
+  val originalAnchorPosition = anchorPosition?.let { anchor ->
+    var position = anchor - leading
+    if (position < 0) return@let anchor - leading + originalLeading
+    var originalPosition = originalLeading
+    for (i in originalPages.indices) {
+      val size = pages[from + i].data.size
+      val originalSize = originalPages[i].data.size
+      if (position < size) {
+        // Filtered pages map proportionally onto their originals.
+        return@let originalPosition + position * originalSize / size
+      }
+      position -= size
+      originalPosition += originalSize
+    }
+    originalPosition + position
+  }
+  return PagingState(originalPages, originalAnchorPosition, config, originalLeading)
+}
+
+internal fun leadingPlaceholderCount(pages: List<PagingSourceLoadResultPage<*, *>>, config: PagingConfig): Int {
+  val itemsBefore = pages.firstOrNull()?.itemsBefore ?: return 0
+  return if (config.enablePlaceholders && itemsBefore != COUNT_UNDEFINED) itemsBefore else 0
+}
@@ -0,0 +1,195 @@
+package app.cash.paging
+
+/**
+ * Resolves positions in a [PagingState] to pages in O(log n) of the page count, where
+ * [PagingState.closestPageToPosition] walks the pages.
+ *
+ * Keep one index per [PagingSource] and pass it each state that source sees, as in [getRefreshKey]:
+ * pages appended, prepended, or dropped since the last state are applied to a Fenwick tree of page
+ * sizes in time proportional to the change. A state of another generation rebuilds the index.
+ * Not thread-safe.
+ */
+internal class PagingStateIndex<Key : Any, Value : Any> {
+
+  /** Capacity of the tree, a power of two. Pages occupy slots [head, head + pageCount). */
+  private var capacity = 0
+  private var head = 0
+  private var pageCount = 0
+  private var pages = arrayOfNulls<PagingSourceLoadResultPage<Key, Value>>(0)
+  private var sizes = IntArray(0)
+  private var tree = IntArray(0)
+
+  /** The number of loaded items in the last state, excluding placeholders. */
+  var itemCount: Int = 0
+    private set
+
+  /**
+   * Returns the index in [state]'s pages of the page holding [anchorPosition], or of the page
+   * nearest it, like the page [PagingState.closestPageToPosition] returns.
+   */
+  fun pageIndexOf(state: PagingState<Key, Value>, anchorPosition: Int): Int {
+    sync(state.pages)
+    val index = anchorPosition - leadingPlaceholderCount(state.pages, state.config)
+    return when {
+      index < 0 -> 0
+      index >= itemCount -> state.pages.lastIndex
+      else -> slotOf(index) - head
+    }
+  }
+
+  /** Returns the number of items on [state]'s pages before the one at [pageIndex]. */
+  fun itemCountBefore(state: PagingState<Key, Value>, pageIndex: Int): Int {
+    sync(state.pages)
+    return prefixSum(head + pageIndex)
+  }
+
+  /** Updates the index to [newPages], applying the change at either end when it's recognizable. */
+  internal fun sync(newPages: List<PagingSourceLoadResultPage<Key, Value>>) {
+    if (pageCount == 0 || newPages.isEmpty()) return rebuild(newPages)
+
+    // Find the old first page among the new ones, or the new first page among the old ones.
+    val oldFirst = pages[head]
+    var prepended = -1
+    var droppedFirst = -1
+    for (step in 0 until maxOf(newPages.size, pageCount)) {
+      if (step < newPages.size && newPages[step] === oldFirst) {
+        prepended = step
+        break
+      }
+      if (step < pageCount && pages[head + step] === newPages[0]) {
+        droppedFirst = step
+        break
+      }
+    }
+    if (prepended < 0 && droppedFirst < 0) return rebuild(newPages)
+    repeat(droppedFirst.coerceAtLeast(0)) { removeFirst() }
+    for (i in prepended - 1 downTo 0) {
+      addFirst(newPages[i])
+    }
+
+    val oldLast = pages[head + pageCount - 1]
+    val newLast = newPages.last()
+    var appended = -1
+    var droppedLast = -1
+    for (step in 0 until maxOf(newPages.size, pageCount)) {
+      if (step < newPages.size && newPages[newPages.size - 1 - step] === oldLast) {
+        appended = step
+        break
+      }
+      if (step < pageCount && pages[head + pageCount - 1 - step] === newLast) {
+        droppedLast = step
+        break
+      }
+    }
+    if (appended < 0 && droppedLast < 0) return rebuild(newPages)
+    repeat(droppedLast.coerceAtLeast(0)) { removeLast() }
+    for (i in newPages.size - appended until newPages.size) {
+      addLast(newPages[i])
+    }
+
+    if (pageCount != newPages.size) rebuild(newPages)
+  }
+
+  private fun addFirst(page: PagingSourceLoadResultPage<Key, Value>) {
+    if (head == 0) grow()
+    head--
+    pageCount++
+    set(head, page)
+  }
+
+  private fun addLast(page: PagingSourceLoadResultPage<Key, Value>) {
+    if (head + pageCount == capacity) grow()
+    pageCount++
+    set(head + pageCount - 1, page)
+  }
+
+  private fun removeFirst() {
+    set(head, null)
+    head++
+    pageCount--
+  }
+
+  private fun removeLast() {
+    set(head + pageCount - 1, null)
+    pageCount--
+  }
+
+  private fun set(slot: Int, page: PagingSourceLoadResultPage<Key, Value>?) {
+    val size = page?.data?.size ?: 0
+    add(slot, size - sizes[slot])
+    sizes[slot] = size
+    pages[slot] = page
+  }
+
+  private fun grow() {
+    val current = List(pageCount) { pages[head + it]!! }
+    rebuild(current, minCapacity = 2 * maxOf(pageCount, capacity))
+  }
+
+  /** Rebuilds the tree in O(capacity), centering [newPages] so either end has room to grow. */
+  private fun rebuild(newPages: List<PagingSourceLoadResultPage<Key, Value>>, minCapacity: Int = 0) {
+    var newCapacity = MIN_CAPACITY
+    while (newCapacity < maxOf(minCapacity, 2 * newPages.size)) {
+      newCapacity *= 2
+    }
+    capacity = newCapacity
+    head = (capacity - newPages.size) / 2
+    pageCount = newPages.size
+    pages = arrayOfNulls(capacity)
+    sizes = IntArray(capacity)
+    tree = IntArray(capacity + 1)
+    itemCount = 0
+    for (i in newPages.indices) {
+      pages[head + i] = newPages[i]
+      sizes[head + i] = newPages[i].data.size
+      itemCount += newPages[i].data.size
+    }
+    // Build in O(capacity) by pushing each node's sum to its parent.
+    for (i in 1..capacity) {
+      tree[i] += sizes[i - 1]
+      val parent = i + (i and -i)
+      if (parent <= capacity) tree[parent] += tree[i]
+    }
+  }
+
+  private fun add(slot: Int, delta: Int) {
+    if (delta == 0) return
+    itemCount += delta
+    var i = slot + 1
+    while (i <= capacity) {
+      tree[i] += delta
+      i += i and -i
+    }
+  }
+
+  /** Returns the number of items in the slots before [slot]. */
+  private fun prefixSum(slot: Int): Int {
+    var sum = 0
+    var i = slot
+    while (i > 0) {
+      sum += tree[i]
+      i -= i and -i
+    }
+    return sum
+  }
+
+  /** Returns the slot holding the item at [index], which is within [itemCount]. */
+  private fun slotOf(index: Int): Int {
+    var slot = 0
+    var remaining = index
+    var step = capacity
+    while (step > 0) {
+      val next = slot + step
+      if (next <= capacity && tree[next] <= remaining) {
+        slot = next
+        remaining -= tree[next]
+      }
+      step = step shr 1
+    }
+    return slot
+  }
+
+  private companion object {
+    const val MIN_CAPACITY = 16
+  }
+}
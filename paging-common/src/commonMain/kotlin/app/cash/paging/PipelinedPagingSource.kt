@@ -0,0 +1,147 @@
+package app.cash.paging
+
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.async
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.ensureActive
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+
+/**
+ * A [PagingSource] that keeps up to [maxConcurrentLoadsPerDirection] APPEND or PREPEND loads of
+ * [delegate] in flight, for sources whose keys can be computed ahead of time such as offset or
+ * positional pagination.
+ *
+ * [Pager] still requests one page per direction at a time and commits pages in key order. When it
+ * does, this source answers from a load it started speculatively and starts the loads for the pages
+ * after it, so a fling over a slow backend waits on overlapping round trips rather than serial ones.
+ * Speculative loads are discarded when a page's actual next key differs from [keyAfter] or
+ * [keyBefore], and are cancelled when this source is invalidated.
+ *
+ * If [prefetchDistance] is given, only as many pages as cover its current distance are kept in
+ * flight, up to [maxConcurrentLoadsPerDirection], so that more are loaded ahead during a fling than
+ * while browsing.
+ *
+ * @param keyAfter the key of the APPEND that follows a page loaded with `key` and `loadSize`.
+ * @param keyBefore the key of the PREPEND that precedes a page loaded with `key` and `loadSize`.
+ */
+class PipelinedPagingSource<Key : Any, Value : Any>(
+  private val delegate: PagingSource<Key, Value>,
+  private val maxConcurrentLoadsPerDirection: Int,
+  private val keyAfter: (key: Key, loadSize: Int) -> Key?,
+  private val keyBefore: (key: Key, loadSize: Int) -> Key?,
+  private val prefetchDistance: VelocityPrefetchDistance? = null,
+) : PagingSource<Key, Value>() {
+
+  private val scope = CoroutineScope(SupervisorJob())
+  private val appends = Pipeline(LoadType.APPEND)
+  private val prepends = Pipeline(LoadType.PREPEND)
+
+  init {
+    require(maxConcurrentLoadsPerDirection >= 1) {
+      "maxConcurrentLoadsPerDirection must be at least 1, but was $maxConcurrentLoadsPerDirection"
+    }
+    invalidateTogetherWith(delegate)
+    registerInvalidatedCallback { scope.cancel() }
+  }
+
+  override val jumpingSupported: Boolean
+    get() = delegate.jumpingSupported
+
+  override val keyReuseSupported: Boolean
+    get() = delegate.keyReuseSupported
+
+  override suspend fun load(params: PagingSourceLoadParams<Key>): PagingSourceLoadResult<Key, Value> =
+    when (params.loadType) {
+      LoadType.APPEND -> appends.load(params)
+      LoadType.PREPEND -> prepends.load(params)
+      else -> delegate.load(params)
+    }
+
+  override fun getRefreshKey(state: PagingState<Key, Value>): Key? = delegate.getRefreshKey(state)
+
+  private inner class Pipeline(private val loadType: LoadType) {
+
+    private val mutex = Mutex()
+    private val inFlight = ArrayDeque<SpeculativeLoad<Key, Value>>()
+
+    private fun adjacentKey(key: Key, loadSize: Int): Key? =
+      if (loadType == LoadType.APPEND) keyAfter(key, loadSize) else keyBefore(key, loadSize)
+
+    private fun PagingSourceLoadResultPage<Key, Value>.adjacentKey(): Key? =
+      if (loadType == LoadType.APPEND) nextKey else prevKey
+
+    suspend fun load(params: PagingSourceLoadParams<Key>): PagingSourceLoadResult<Key, Value> {
+      val key = params.key!!
+      val speculativeLoad = mutex.withLock {
+        val head = inFlight.firstOrNull()
+        val matched = if (head != null && head.key == key && head.loadSize == params.loadSize) {
+          inFlight.removeFirst()
+        } else {
+          cancelAll()
+          null
+        }
+        fill(after = key, params)
+        matched
+      }
+
+      val result = speculativeLoad?.awaitOrNull() ?: delegate.load(params)
+
+      mutex.withLock {
+        val page = result.pageOrNull()
+        if (page == null || page.adjacentKey() != inFlight.firstOrNull()?.key) {
+          cancelAll()
+        }
+      }
+      return result
+    }
+
+    /** Starts loads for the keys following [after] until [concurrentLoads] are in flight. */
+    private suspend fun fill(after: Key, params: PagingSourceLoadParams<Key>) {
+      val context = currentCoroutineContext().minusKey(Job)
+      var previousKey = inFlight.lastOrNull()?.key ?: after
+      // One slot is taken by the load that is being answered right now.
+      val concurrentLoads = concurrentLoads(params.loadSize)
+      while (inFlight.size < concurrentLoads - 1) {
+        val nextKey = adjacentKey(previousKey, params.loadSize) ?: return
+        val nextParams = createPagingSourceLoadParams(loadType, nextKey, params.loadSize, params.placeholdersEnabled)
+        inFlight.addLast(
+          SpeculativeLoad(nextKey, params.loadSize, scope.async(context) { delegate.load(nextParams) }),
+        )
+        previousKey = nextKey
+      }
+    }
+
+    private fun concurrentLoads(loadSize: Int): Int {
+      val distance = prefetchDistance?.prefetchDistance(loadType) ?: return maxConcurrentLoadsPerDirection
+      val pages = (distance + loadSize - 1) / loadSize
+      return pages.coerceIn(1, maxConcurrentLoadsPerDirection)
+    }
+
+    private fun cancelAll() {
+      while (inFlight.isNotEmpty()) {
+        inFlight.removeFirst().result.cancel()
+      }
+    }
+  }
+}
+
+private class SpeculativeLoad<Key : Any, Value : Any>(
+  val key: Key,
+  val loadSize: Int,
+  val result: Deferred<PagingSourceLoadResult<Key, Value>>,
+) {
+  /** Returns null if the load was cancelled, so that the caller loads the page itself instead. */
+  suspend fun awaitOrNull(): PagingSourceLoadResult<Key, Value>? = try {
+    result.await()
+  } catch (e: CancellationException) {
+    if (!result.isCancelled) throw e
+    currentCoroutineContext().ensureActive()
+    null
+  }
+}
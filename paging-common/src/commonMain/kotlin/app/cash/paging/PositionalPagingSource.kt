@@ -0,0 +1,86 @@
+package app.cash.paging
+
+import kotlinx.coroutines.CancellationException
+
+/**
+ * An [IntKeyPagingSource] for backends that read items by position, such as `LIMIT`/`OFFSET`
+ * queries. Each page's key is the position of its first item, so any position maps to the key
+ * that loads it without walking the pages in between.
+ *
+ * Implement [totalCount] and [loadRange]; this fills in [PagingSourceLoadResultPage.itemsBefore] and
+ * [PagingSourceLoadResultPage.itemsAfter] so that the [Pager] presents placeholders for the whole
+ * list, and implements [getRefreshKey] from [PagingState.anchorPosition]. With jumping supported,
+ * set [PagingConfig.jumpThreshold] and a scroll past that many placeholders, such as a scrollbar
+ * drag, loads the page at the new position directly instead of appending every page up to it.
+ *
+ * The count is read once per generation, on its initial load. Invalidate this source when the
+ * count changes; a [loadRange] that returns fewer items than the count promised also invalidates
+ * it. An exception from [totalCount] or [loadRange] is returned as a
+ * [PagingSourceLoadResultError], so the [Pager] reports it as a [LoadStateError] that can be
+ * retried.
+ */
+abstract class PositionalPagingSource<Value : Any> : IntKeyPagingSource<Value>() {
+
+  /** The count of the generation, read by its initial load. */
+  private var count = COUNT_UNDEFINED
+
+  override val jumpingSupported: Boolean
+    get() = true
+
+  /** Returns the number of items in the list. */
+  abstract suspend fun totalCount(): Int
+
+  /** Returns the [count] items starting at position [start], all of which are within [totalCount]. */
+  abstract suspend fun loadRange(start: Int, count: Int): List<Value>
+
+  final override suspend fun load(params: IntKeyLoadParams): PagingSourceLoadResult<Int, Value> = try {
+    loadPositions(params)
+  } catch (e: CancellationException) {
+    throw e
+  } catch (e: Exception) {
+    PagingSourceLoadResultError<Int, Value>(e).asLoadResult()
+  }
+
+  private suspend fun loadPositions(params: IntKeyLoadParams): PagingSourceLoadResult<Int, Value> {
+    val start: Int
+    val end: Int
+    when (params.loadType) {
+      LoadType.REFRESH -> {
+        count = totalCount()
+        val key = if (params.key == NO_INT_KEY) 0 else params.key
+        // Keep a refresh near the end a full load, rather than one that's cut short.
+        start = key.coerceAtMost(count - params.loadSize).coerceAtLeast(0)
+        end = minOf(count, start + params.loadSize)
+      }
+      LoadType.APPEND -> {
+        start = params.key
+        end = minOf(count, start + params.loadSize)
+      }
+      // PREPEND keys are the position that the loaded items end before.
+      else -> {
+        end = params.key
+        start = maxOf(0, end - params.loadSize)
+      }
+    }
+
+    val data = if (end > start) loadRange(start, end - start) else emptyList()
+    if (data.size != end - start) {
+      // The list shrank since the count was read.
+      invalidate()
+      return PagingSourceLoadResultInvalid<Int, Value>().asLoadResult()
+    }
+    return page(
+      data = data,
+      prevKey = if (start > 0) start else NO_INT_KEY,
+      nextKey = if (end < count) end else NO_INT_KEY,
+      itemsBefore = start,
+      itemsAfter = count - end,
+    )
+  }
+
+  /** Returns the position half an initial load before the anchor, so the reload centers on it. */
+  override fun getRefreshKey(state: PagingState<Int, Value>): Int? {
+    val anchorPosition = state.anchorPosition ?: return null
+    return box(maxOf(0, anchorPosition - state.config.initialLoadSize / 2))
+  }
+}
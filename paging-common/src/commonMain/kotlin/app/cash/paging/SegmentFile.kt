@@ -0,0 +1,23 @@
+package app.cash.paging
+
+/** A fixed-capacity region of a file that's read and written in place, such as a memory mapping. */
+internal interface SegmentFile {
+  val capacity: Int
+  fun readInt(offset: Int): Int
+  fun read(offset: Int, length: Int): ByteArray
+  fun write(offset: Int, bytes: ByteArray)
+  fun close()
+}
+
+/** The numbered [SegmentFile]s of a [DiskPageStore]. */
+internal interface SegmentDirectory {
+  fun segmentIds(): List<Int>
+  fun open(id: Int, capacity: Int): SegmentFile
+  fun delete(id: Int)
+}
+
+internal fun segmentFileName(id: Int): String = "segment-$id.bin"
+
+/** Returns the id of the segment named [fileName], or null if it isn't a segment. */
+internal fun segmentId(fileName: String): Int? =
+  fileName.removePrefix("segment-").removeSuffix(".bin").takeIf { it != fileName }?.toIntOrNull()
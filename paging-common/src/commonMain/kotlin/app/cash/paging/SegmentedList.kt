@@ -0,0 +1,123 @@
+package app.cash.paging
+
+/**
+ * A read-only [List] viewing [segments], such as the data of loaded pages, end to end without
+ * copying their items. Creating one costs O(segments) and [get] costs O(log segments).
+ *
+ * [plus] and [prepend] return a new list that shares this one's segments, so successive
+ * generations that add pages at either end don't copy what they have in common. The segments must
+ * not change while viewed, as page data doesn't.
+ */
+internal class SegmentedList<T> private constructor(
+  private val segments: Array<List<T>>,
+  /** The index of each segment's first item, ascending. */
+  private val starts: IntArray,
+  override val size: Int,
+) : AbstractList<T>(), RandomAccess {
+
+  constructor(segments: List<List<T>>) : this(
+    segments.filter { it.isNotEmpty() }.toTypedArray(),
+  )
+
+  private constructor(segments: Array<List<T>>) : this(segments, startsOf(segments), segments.sumOf { it.size })
+
+  /** The number of non-empty segments viewed. */
+  val segmentCount: Int
+    get() = segments.size
+
+  override fun get(index: Int): T {
+    if (index < 0 || index >= size) throw IndexOutOfBoundsException("index: $index, size: $size")
+    val segment = segmentOf(index)
+    return segments[segment][index - starts[segment]]
+  }
+
+  override fun iterator(): Iterator<T> = object : Iterator<T> {
+    private var segment = 0
+    private var offset = 0
+
+    override fun hasNext(): Boolean = segment < segments.size
+
+    override fun next(): T {
+      if (!hasNext()) throw NoSuchElementException()
+      val items = segments[segment]
+      val item = items[offset++]
+      if (offset == items.size) {
+        segment++
+        offset = 0
+      }
+      return item
+    }
+  }
+
+  /** Returns a list of these items followed by [segment]'s. */
+  operator fun plus(segment: List<T>): SegmentedList<T> {
+    if (segment.isEmpty()) return this
+    val newSegments = segments.copyOf(segments.size + 1)
+    newSegments[segments.size] = segment
+    val newStarts = starts.copyOf(starts.size + 1)
+    newStarts[starts.size] = size
+    @Suppress("UNCHECKED_CAST")
+    return SegmentedList(newSegments as Array<List<T>>, newStarts, size + segment.size)
+  }
+
+  /** Returns a list of [segment]'s items followed by these. */
+  fun prepend(segment: List<T>): SegmentedList<T> {
+    if (segment.isEmpty()) return this
+    return SegmentedList(arrayOf(segment) + segments)
+  }
+
+  /** Returns the segment holding [index], the last whose start isn't after it. */
+  private fun segmentOf(index: Int): Int {
+    var low = 0
+    var high = starts.size - 1
+    while (low < high) {
+      val mid = (low + high + 1) ushr 1
+      if (starts[mid] <= index) low = mid else high = mid - 1
+    }
+    return low
+  }
+
+  private companion object {
+    fun startsOf(segments: Array<out List<*>>): IntArray {
+      val starts = IntArray(segments.size)
+      var start = 0
+      for (i in segments.indices) {
+        starts[i] = start
+        start += segments[i].size
+      }
+      return starts
+    }
+  }
+}
+
+/**
+ * A [NullPaddedList] whose loaded items are a [SegmentedList] of page data, for presenters that
+ * keep their own pages. [getFromStorage] resolves through the segment index, and [snapshot] shares
+ * the segments instead of copying every item.
+ */
+internal class SegmentedNullPaddedList<T : Any>(
+  override val placeholdersBefore: Int,
+  val items: SegmentedList<T>,
+  override val placeholdersAfter: Int,
+) : NullPaddedList<T> {
+
+  constructor(
+    placeholdersBefore: Int,
+    pages: List<List<T>>,
+    placeholdersAfter: Int,
+  ) : this(placeholdersBefore, SegmentedList(pages), placeholdersAfter)
+
+  override val storageCount: Int
+    get() = items.size
+
+  override val size: Int
+    get() = placeholdersBefore + items.size + placeholdersAfter
+
+  override fun getFromStorage(localIndex: Int): T = items[localIndex]
+
+  /** Returns an [ItemSnapshotList] viewing these items, in O(1). */
+  fun snapshot(): ItemSnapshotList<T> = ItemSnapshotList(placeholdersBefore, placeholdersAfter, items)
+
+  override fun toString(): String =
+    "SegmentedNullPaddedList(placeholdersBefore=$placeholdersBefore, storageCount=$storageCount, placeholdersAfter=$placeholdersAfter)"
+}
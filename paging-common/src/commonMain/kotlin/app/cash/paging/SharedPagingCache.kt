@@ -0,0 +1,103 @@
+package app.cash.paging
+
+import kotlinx.atomicfu.locks.SynchronizedObject
+import kotlinx.atomicfu.locks.synchronized
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.flow.Flow
+import kotlin.coroutines.CoroutineContext
+import kotlin.coroutines.EmptyCoroutineContext
+
+/**
+ * Caches the [pagingData] of each key once for any number of scopes, such as several view models
+ * showing the same list, where [cachedIn] would cache a copy of the loaded pages for each.
+ *
+ * Each call to [cachedIn] holds a reference to its key's entry until its scope completes. An entry
+ * caches in a scope of its own, run on [context]. Once its last reference is released it's kept
+ * idle, so that a list shown again soon doesn't reload, until more than [maxEntries] entries are
+ * cached: then the least recently used idle entries are cancelled, and a later reference collects
+ * their [pagingData] afresh. Entries that hold references are never cancelled, so they can exceed
+ * [maxEntries]. With a [maxEntries] of 0 an entry is cancelled as soon as it's released.
+ *
+ * A scope without a [Job] never completes, so its reference is never released. A scope whose [Job]
+ * has already completed takes no reference.
+ *
+ * To cap the memory each entry's pages take, create the [Pager] with a [PagingConfig.maxSize] of the
+ * page cap times the page size, or with [PagingByteBudget.pagingConfig] for a cap in bytes. The
+ * [Pager] then drops the pages farthest from the last accessed item, replacing them with
+ * placeholders if [PagingConfig.enablePlaceholders] so that indices stay stable.
+ */
+class SharedPagingCache<Key : Any, T : Any>(
+  private val maxEntries: Int,
+  private val context: CoroutineContext = EmptyCoroutineContext,
+  private val pagingData: (Key) -> Flow<PagingData<T>>,
+) {
+
+  private val lock = SynchronizedObject()
+
+  /** The cached entries, from the least to the most recently used. */
+  private val entries = LinkedHashMap<Key, Entry<T>>()
+
+  init {
+    require(maxEntries >= 0) { "maxEntries must be at least 0, but was $maxEntries" }
+  }
+
+  /** The number of entries cached, including idle ones. */
+  val size: Int
+    get() = synchronized(lock) { entries.size }
+
+  /** The number of scopes currently holding a reference to the entry of [key]. */
+  fun referenceCount(key: Key): Int = synchronized(lock) { entries[key]?.references ?: 0 }
+
+  /** Returns the shared cached flow of [key], holding a reference to it until [scope] completes. */
+  fun cachedIn(key: Key, scope: CoroutineScope): Flow<PagingData<T>> {
+    val job = scope.coroutineContext[Job]
+    val holdsReference = job?.isActive ?: true
+    val (flow, evicted) = synchronized(lock) {
+      val entry = entries.remove(key) ?: run {
+        val newScope = CoroutineScope(context + SupervisorJob())
+        Entry(newScope, pagingData(key).cachedIn(newScope))
+      }
+      entries[key] = entry
+      if (holdsReference) entry.references++
+      entry.flow to trimIdle()
+    }
+    evicted.forEach { it.cancel() }
+    if (holdsReference) job?.invokeOnCompletion { release(key) }
+    return flow
+  }
+
+  private fun release(key: Key) {
+    val evicted = synchronized(lock) {
+      val entry = entries[key] ?: return
+      entry.references--
+      trimIdle()
+    }
+    evicted.forEach { it.cancel() }
+  }
+
+  /** Removes the least recently used idle entries beyond [maxEntries], returning their scopes. */
+  private fun trimIdle(): List<CoroutineScope> {
+    var excess = entries.size - maxEntries
+    if (excess <= 0) return emptyList()
+    val evicted = mutableListOf<CoroutineScope>()
+    val iterator = entries.values.iterator()
+    while (excess > 0 && iterator.hasNext()) {
+      val entry = iterator.next()
+      if (entry.references > 0) continue
+      iterator.remove()
+      evicted += entry.scope
+      excess--
+    }
+    return evicted
+  }
+
+  private class Entry<T : Any>(
+    val scope: CoroutineScope,
+    val flow: Flow<PagingData<T>>,
+  ) {
+    var references = 0
+  }
+}
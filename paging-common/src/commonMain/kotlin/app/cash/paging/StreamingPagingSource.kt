@@ -0,0 +1,117 @@
+package app.cash.paging
+
+import kotlinx.atomicfu.atomic
+import kotlinx.atomicfu.locks.SynchronizedObject
+import kotlinx.atomicfu.locks.synchronized
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.launch
+
+/**
+ * A [PagingSource] over a list that grows at its end, such as a chat or a log tail. The items of
+ * each emission of [newItems], collected in [scope], are added to the end of [initialItems].
+ *
+ * The list never reaches the end of pagination. An APPEND at the end suspends until new items
+ * arrive, then returns them, so the [Pager] presents them as one insert at the end, without
+ * invalidating this source, reloading its pages, or diffing. The APPEND load state stays
+ * [LoadStateLoading] while it waits; show the end of the list as live rather than as loading.
+ *
+ * [newItems] is collected from the first load until this source is invalidated, as by a refresh,
+ * and items it emits outside that span are never seen. Pass a flow that starts from what
+ * [initialItems] leave out, such as a query for the items after the last of them, or a
+ * `SharedFlow` that replays what a source may miss. The next source collects its own [newItems].
+ *
+ * Only the last [maxItems] items are kept. Older ones are dropped from the start of the list as new
+ * items arrive, which ends prepending there; pages the [Pager] already holds keep their items.
+ */
+class StreamingPagingSource<Value : Any>(
+  private val scope: CoroutineScope,
+  private val newItems: Flow<List<Value>>,
+  initialItems: List<Value> = emptyList(),
+  private val maxItems: Int = Int.MAX_VALUE,
+) : IntKeyPagingSource<Value>() {
+
+  private val lock = SynchronizedObject()
+  private val items = ArrayDeque(initialItems.takeLast(maxItems))
+
+  /** The position of the first item of [items], counting the items dropped for [maxItems]. */
+  private var firstPosition = initialItems.size - items.size
+
+  /** The position after the last item, updated after each emission is added to [items]. */
+  private val endPosition = MutableStateFlow(initialItems.size)
+
+  private val collecting = atomic(false)
+
+  init {
+    require(maxItems >= 1) { "maxItems must be at least 1, but was $maxItems" }
+  }
+
+  override val jumpingSupported: Boolean
+    get() = true
+
+  override suspend fun load(params: IntKeyLoadParams): PagingSourceLoadResult<Int, Value> {
+    if (collecting.compareAndSet(false, true)) collectNewItems()
+
+    val start: Int
+    val end: Int
+    when (params.loadType) {
+      LoadType.REFRESH -> {
+        val size = endPosition.value
+        start = if (params.key == NO_INT_KEY) {
+          maxOf(0, size - params.loadSize)
+        } else {
+          params.key.coerceIn(0, maxOf(0, size - params.loadSize))
+        }
+        end = minOf(size, start + params.loadSize)
+      }
+      LoadType.APPEND -> {
+        start = params.key
+        val size = endPosition.first { it > start }
+        end = minOf(size, start + params.loadSize)
+      }
+      else -> {
+        end = params.key
+        start = maxOf(0, end - params.loadSize)
+      }
+    }
+
+    return synchronized(lock) {
+      // Positions dropped for maxItems are skipped, which ends prepending at the first kept item.
+      val from = maxOf(start, firstPosition)
+      val to = maxOf(end, from)
+      page(
+        data = items.subList(from - firstPosition, to - firstPosition).toList(),
+        prevKey = if (from > firstPosition) from else NO_INT_KEY,
+        // Never the end: the next APPEND waits for new items.
+        nextKey = to,
+        itemsBefore = from - firstPosition,
+        itemsAfter = firstPosition + items.size - to,
+      )
+    }
+  }
+
+  override fun getRefreshKey(state: PagingState<Int, Value>): Int? {
+    val anchorPosition = state.anchorPosition ?: return null
+    return box(maxOf(0, anchorPosition - state.config.initialLoadSize / 2))
+  }
+
+  private fun collectNewItems() {
+    val collection = scope.launch {
+      newItems.collect { emitted ->
+        if (emitted.isEmpty()) return@collect
+        endPosition.value = synchronized(lock) {
+          items.addAll(emitted)
+          while (items.size > maxItems) {
+            items.removeFirst()
+            firstPosition++
+          }
+          firstPosition + items.size
+        }
+      }
+    }
+    // Runs at once if this source was invalidated before its first load.
+    registerInvalidatedCallback { collection.cancel() }
+  }
+}
@@ -0,0 +1,105 @@
+package app.cash.paging
+
+import kotlinx.atomicfu.locks.SynchronizedObject
+import kotlinx.atomicfu.locks.synchronized
+import kotlin.math.abs
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.milliseconds
+import kotlin.time.TimeSource
+
+/**
+ * Tracks how fast and in which direction the UI moves through the list, and derives how far ahead
+ * to prefetch from it, so that flings prefetch further while slow browsing doesn't over-fetch.
+ *
+ * Call [onItemAccessed] wherever the UI reads an item from its [PagingDataDiffer] or
+ * `LazyPagingItems`. Reads within [frame] of the first one count as a single sample at the lowest
+ * index read, the first visible item, so reading every visible item each frame measures how the
+ * viewport moves rather than how it's swept. The prefetch distance in the direction of travel is
+ * [basePrefetchDistance] plus the items the UI will pass during [lookahead] at its current
+ * velocity, up to [maxPrefetchDistance]. It's [basePrefetchDistance] in the other direction.
+ *
+ * Give this to a [PipelinedPagingSource], which keeps enough pages in flight to cover the distance.
+ *
+ * @param lookahead how far ahead in time to prefetch, typically the latency of a load.
+ * @param window how far back item reads count toward the velocity.
+ * @param frame how close together item reads are taken as reads by the same frame.
+ * @param timeSource the clock that reads are timed with.
+ */
+class VelocityPrefetchDistance(
+  private val basePrefetchDistance: Int,
+  private val maxPrefetchDistance: Int,
+  private val lookahead: Duration = 500.milliseconds,
+  private val window: Duration = 250.milliseconds,
+  frame: Duration = 4.milliseconds,
+  timeSource: TimeSource = TimeSource.Monotonic,
+) {
+
+  init {
+    require(basePrefetchDistance in 0..maxPrefetchDistance) {
+      "basePrefetchDistance must be between 0 and maxPrefetchDistance"
+    }
+  }
+
+  private val lock = SynchronizedObject()
+  private val start = timeSource.markNow()
+  private val frameNanos = frame.inWholeNanoseconds
+  private val times = LongArray(SAMPLE_COUNT)
+  private val indexes = IntArray(SAMPLE_COUNT)
+  private var sampleCount = 0
+
+  fun onItemAccessed(index: Int) {
+    val now = start.elapsedNow().inWholeNanoseconds
+    synchronized(lock) {
+      val last = (sampleCount - 1) % SAMPLE_COUNT
+      if (sampleCount > 0 && now - times[last] < frameNanos) {
+        indexes[last] = minOf(indexes[last], index)
+        return
+      }
+      val slot = sampleCount % SAMPLE_COUNT
+      times[slot] = now
+      indexes[slot] = index
+      sampleCount++
+    }
+  }
+
+  /**
+   * The velocity over the last [window], in items per second. Positive towards the end of the list,
+   * and zero once the UI stops reading.
+   */
+  val velocity: Double
+    get() {
+      val now = start.elapsedNow().inWholeNanoseconds
+      val windowNanos = window.inWholeNanoseconds
+      synchronized(lock) {
+        if (sampleCount < 2) return 0.0
+        val newest = (sampleCount - 1) % SAMPLE_COUNT
+        if (now - times[newest] > windowNanos) return 0.0
+        var oldest = newest
+        for (i in 1 until minOf(sampleCount, SAMPLE_COUNT)) {
+          val slot = (newest - i + SAMPLE_COUNT) % SAMPLE_COUNT
+          if (now - times[slot] > windowNanos) break
+          oldest = slot
+        }
+        val elapsed = times[newest] - times[oldest]
+        if (elapsed <= 0) return 0.0
+        return (indexes[newest] - indexes[oldest]) * 1e9 / elapsed
+      }
+    }
+
+  /** Returns how many items to prefetch past the loaded items at the [loadType] end. */
+  fun prefetchDistance(loadType: LoadType): Int {
+    val velocity = velocity
+    val towards = when (loadType) {
+      LoadType.APPEND -> velocity > 0
+      LoadType.PREPEND -> velocity < 0
+      else -> false
+    }
+    if (!towards) return basePrefetchDistance
+    val ahead = abs(velocity) * lookahead.inWholeMilliseconds / 1000
+    return (basePrefetchDistance + ahead).toInt().coerceAtMost(maxPrefetchDistance)
+  }
+
+  private companion object {
+    const val SAMPLE_COUNT = 16
+  }
+}
@@ -0,0 +1,156 @@
+package app.cash.paging
+
+import kotlin.test.AfterTest
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+
+class DiskPageStoreTest {
+
+  private val directory = FakeSegmentDirectory()
+  private var store = open()
+
+  @AfterTest
+  fun tearDown() {
+    store.close()
+  }
+
+  @Test
+  fun reopenKeepsPages() {
+    store.put(key(1), page(1))
+    store.put(key(2), page(2))
+
+    reopen()
+
+    assertEquals(listOf("item 1"), store[key(1)]?.data)
+    assertEquals(listOf("item 2"), store[key(2)]?.data)
+    assertEquals(2, store.size)
+  }
+
+  @Test
+  fun reopenKeepsRemovedPagesRemoved() {
+    store.put(key(1), page(1))
+    store.put(key(2), page(2))
+    store.put(key(3), page(3))
+    store.remove(key(2))
+    store.removeAll { key: PageCacheKey<Int> -> key.key == 3 }
+
+    reopen()
+
+    assertEquals(listOf("item 1"), store[key(1)]?.data)
+    assertNull(store[key(2)])
+    assertNull(store[key(3)])
+    assertEquals(1, store.size)
+  }
+
+  @Test
+  fun reopenKeepsReplacedPage() {
+    store.put(key(1), page(1))
+    store.put(key(1), page(1, item = "replaced"))
+
+    reopen()
+
+    assertEquals(listOf("replaced"), store[key(1)]?.data)
+  }
+
+  @Test
+  fun reopenSkipsTornTail() {
+    store.put(key(1), page(1))
+    store.put(key(2), page(2))
+    store.close()
+    // Corrupt the body of the second record, as a crash between writing it and its header would.
+    val segment = directory.files.getValue(0)
+    val second = RECORD_HEADER_BYTES + segment.getInt(0)
+    segment[second + RECORD_HEADER_BYTES]++
+
+    store = open()
+
+    assertEquals(listOf("item 1"), store[key(1)]?.data)
+    assertNull(store[key(2)])
+
+    // Appending continues past the torn record, which stays skipped.
+    store.put(key(3), page(3))
+    reopen()
+
+    assertEquals(listOf("item 1"), store[key(1)]?.data)
+    assertNull(store[key(2)])
+    assertEquals(listOf("item 3"), store[key(3)]?.data)
+  }
+
+  @Test
+  fun reopenWithoutTornTailAppendsToNewestSegment() {
+    store.put(key(1), page(1))
+    repeat(3) { reopen() }
+
+    assertEquals(listOf(0), directory.segmentIds())
+    assertEquals(listOf("item 1"), store[key(1)]?.data)
+  }
+
+  @Test
+  fun clearSurvivesReopen() {
+    store.put(key(1), page(1))
+    store.clear()
+
+    reopen()
+
+    assertNull(store[key(1)])
+    assertEquals(0, store.size)
+  }
+
+  private fun open() = DiskPageStore(directory, IntStringCodec, maxBytes = 256L * 1024)
+
+  private fun reopen() {
+    store.close()
+    store = open()
+  }
+
+  private fun key(key: Int) = PageCacheKey(LoadType.APPEND, key, 10)
+
+  private fun page(key: Int, item: String = "item $key") =
+    PagingSourceLoadResultPage(listOf(item), key - 1, key + 1, COUNT_UNDEFINED, COUNT_UNDEFINED)
+
+  private object IntStringCodec : PageCodec<Int, String> {
+    override fun encodeKey(key: Int) = ByteArray(4).apply { putInt(0, key) }
+
+    override fun decodeKey(bytes: ByteArray) = bytes.getInt(0)
+
+    override fun encodeItem(item: String) = item.encodeToByteArray()
+
+    override fun decodeItem(bytes: ByteArray, offset: Int, length: Int) =
+      bytes.decodeToString(offset, offset + length)
+  }
+
+  /** Segments held in memory, which outlive the stores that open them as files outlive a process. */
+  private class FakeSegmentDirectory : SegmentDirectory {
+    val files = mutableMapOf<Int, ByteArray>()
+
+    override fun segmentIds() = files.keys.sorted()
+
+    override fun open(id: Int, capacity: Int): SegmentFile {
+      val segment = files.getOrPut(id) { ByteArray(capacity) }
+      return object : SegmentFile {
+        override val capacity: Int
+          get() = segment.size
+
+        override fun readInt(offset: Int) = segment.getInt(offset)
+
+        override fun read(offset: Int, length: Int) = segment.copyOfRange(offset, offset + length)
+
+        override fun write(offset: Int, bytes: ByteArray) {
+          bytes.copyInto(segment, offset)
+        }
+
+        override fun close() {}
+      }
+    }
+
+    override fun delete(id: Int) {
+      files.remove(id)
+    }
+  }
+
+  private companion object {
+    /** The length and checksum before each record, as DiskPageStore writes them. */
+    const val RECORD_HEADER_BYTES = 8
+  }
+}
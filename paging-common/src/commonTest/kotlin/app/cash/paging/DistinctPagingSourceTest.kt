@@ -0,0 +1,98 @@
+package app.cash.paging
+
+import kotlinx.coroutines.test.runTest
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class DistinctPagingSourceTest {
+
+  @Test
+  fun duplicatesOfEarlierPagesAreDropped() = runTest {
+    val metrics = HistogramPagingMetrics()
+    val source = ListPagingSource(listOf(1, 2, 3, 3, 2, 4)).distinctItemsBy(maxItems = 100, metrics = metrics) { it }
+
+    assertEquals(listOf(1, 2, 3), source.loadItems(0, 3))
+    assertEquals(listOf(4), source.loadItems(3, 3))
+    assertEquals(2L, metrics.duplicatesDropped)
+  }
+
+  @Test
+  fun reloadedPageKeepsItsItems() = runTest {
+    val source = ListPagingSource(listOf(1, 2, 3, 4)).distinctItemsBy(maxItems = 100) { it }
+
+    assertEquals(listOf(1, 2), source.loadItems(0, 2))
+    assertEquals(listOf(3, 4), source.loadItems(2, 2))
+    assertEquals(listOf(1, 2), source.loadItems(0, 2))
+  }
+
+  @Test
+  fun keysOfPagesOutsideTheWindowAreForgotten() = runTest {
+    // The first page's keys come back once 3 more pages of 2 filled the window of 4 items.
+    val source = ListPagingSource(listOf(1, 2, 3, 4, 5, 6, 7, 8, 1, 2)).distinctItemsBy(maxItems = 4) { it }
+
+    assertEquals(listOf(1, 2), source.loadItems(0, 2))
+    assertEquals(listOf(3, 4), source.loadItems(2, 2))
+    assertEquals(listOf(5, 6), source.loadItems(4, 2))
+    assertEquals(listOf(7, 8), source.loadItems(6, 2))
+    assertEquals(listOf(1, 2), source.loadItems(8, 2))
+  }
+
+  @Test
+  fun bloomFilterDropsDuplicatesWithinTheWindow() = runTest {
+    val source = ListPagingSource(listOf(1, 2, 3, 3, 2, 4))
+      .distinctItemsBy(maxItems = 100, bloomFilterBitsPerItem = 16) { it }
+
+    assertEquals(listOf(1, 2, 3), source.loadItems(0, 3))
+    assertEquals(listOf(4), source.loadItems(3, 3))
+    assertEquals(listOf(1, 2, 3), source.loadItems(0, 3))
+  }
+
+  @Test
+  fun bloomFilterFalsePositiveRateIsWithinTheDocumentedBound() = runTest {
+    val itemCount = 100_000
+    val pageSize = 100
+    val metrics = HistogramPagingMetrics()
+    val source = ListPagingSource(List(itemCount) { it })
+      .distinctItemsBy(maxItems = 1_000, bloomFilterBitsPerItem = 10, metrics = metrics) { it }
+
+    for (offset in 0 until itemCount step pageSize) {
+      source.loadItems(offset, pageSize)
+    }
+
+    // Every item is distinct, so every dropped item is a false positive.
+    val falsePositiveRate = metrics.duplicatesDropped.toDouble() / itemCount
+    assertTrue(falsePositiveRate < 0.035, "false positive rate $falsePositiveRate")
+  }
+
+  @Test
+  fun bloomFilterHasNoFalseNegatives() {
+    val filter = BloomFilter(10_000)
+    for (hash in 0 until 1_000) assertTrue(filter.add(hash * 31))
+    for (hash in 0 until 1_000) {
+      assertTrue(filter.contains(hash * 31))
+      assertFalse(filter.add(hash * 31))
+    }
+  }
+
+  private suspend fun PagingSource<Int, Int>.loadItems(offset: Int, loadSize: Int): List<Int>? =
+    load(createPagingSourceLoadParams(LoadType.APPEND, offset, loadSize, false)).pageOrNull()?.data
+
+  /** Loads the items of [items] from the offset in each key. */
+  private class ListPagingSource(private val items: List<Int>) : PagingSource<Int, Int>() {
+    override suspend fun load(params: PagingSourceLoadParams<Int>): PagingSourceLoadResult<Int, Int> {
+      val offset = params.key ?: 0
+      val end = minOf(items.size, offset + params.loadSize)
+      return PagingSourceLoadResultPage(
+        items.subList(offset, end),
+        if (offset > 0) offset else null,
+        if (end < items.size) end else null,
+        COUNT_UNDEFINED,
+        COUNT_UNDEFINED,
+      ).asLoadResult()
+    }
+
+    override fun getRefreshKey(state: PagingState<Int, Int>): Int? = null
+  }
+}
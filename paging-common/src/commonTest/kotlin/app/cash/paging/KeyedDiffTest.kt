@@ -0,0 +1,148 @@
+package app.cash.paging
+
+import kotlin.random.Random
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.time.Duration
+
+class KeyedDiffTest {
+
+  @Test
+  fun identicalListsHaveNoUpdates() {
+    val items = items("a", "b", "c")
+    assertEquals(emptyList(), updates(items, items))
+  }
+
+  @Test
+  fun append() {
+    assertDiffApplies(items("a", "b"), items("a", "b", "c", "d"))
+  }
+
+  @Test
+  fun prepend() {
+    assertDiffApplies(items("c", "d"), items("a", "b", "c", "d"))
+  }
+
+  @Test
+  fun removeFromMiddle() {
+    assertDiffApplies(items("a", "b", "c", "d"), items("a", "d"))
+  }
+
+  @Test
+  fun changedContentsAreChanges() {
+    val old = items("a", "b", "c")
+    val new = listOf(Item("a"), Item("b", version = 1), Item("c"))
+    assertDiffApplies(old, new)
+    assertEquals(listOf("changed 1+1"), updates(old, new))
+  }
+
+  @Test
+  fun move() {
+    assertDiffApplies(items("a", "b", "c", "d", "e"), items("a", "d", "b", "c", "e"))
+  }
+
+  @Test
+  fun reverse() {
+    assertDiffApplies(items("a", "b", "c", "d"), items("d", "c", "b", "a"))
+  }
+
+  @Test
+  fun replaceEverything() {
+    assertDiffApplies(items("a", "b"), items("c", "d", "e"))
+  }
+
+  @Test
+  fun fromAndToEmpty() {
+    assertDiffApplies(emptyList(), items("a", "b"))
+    assertDiffApplies(items("a", "b"), emptyList())
+  }
+
+  @Test
+  fun randomEdits() {
+    val random = Random(0)
+    repeat(500) {
+      val old = List(random.nextInt(40)) { Item("k$it", random.nextInt(2)) }
+      val new = old.toMutableList()
+      repeat(random.nextInt(10)) {
+        when (random.nextInt(4)) {
+          0 -> new.add(random.nextInt(new.size + 1), Item("n${random.nextInt(1000)}"))
+          1 -> if (new.isNotEmpty()) new.removeAt(random.nextInt(new.size))
+          2 -> if (new.isNotEmpty()) new.add(random.nextInt(new.size), new.removeAt(random.nextInt(new.size)))
+          else -> if (new.isNotEmpty()) {
+            val i = random.nextInt(new.size)
+            new[i] = new[i].copy(version = new[i].version + 1)
+          }
+        }
+      }
+      assertDiffApplies(old, new.distinctBy { it.key })
+    }
+  }
+
+  @Test
+  fun newPositionFollowsKeptItems() {
+    val old = items("a", "b", "c", "d")
+    val new = items("x", "a", "c", "d")
+    val diff = diff(old, new)
+    assertEquals(listOf(1, -1, 2, 3), old.indices.map(diff::newPosition))
+  }
+
+  /**
+   * Applies the diff of [old] to [new] to a copy of [old], with inserted and changed items blanked,
+   * and checks that filling the blanks from [new] yields [new]: every item the diff keeps must be
+   * unchanged and land in its new position.
+   */
+  private fun assertDiffApplies(old: List<Item>, new: List<Item>) {
+    val applied = old.toMutableList<Item?>()
+    diff(old, new).dispatchTo(
+      object : DifferCallback {
+        override fun onChanged(position: Int, count: Int) {
+          for (i in position until position + count) applied[i] = null
+        }
+
+        override fun onInserted(position: Int, count: Int) {
+          applied.addAll(position, List(count) { null })
+        }
+
+        override fun onRemoved(position: Int, count: Int) {
+          applied.subList(position, position + count).clear()
+        }
+      },
+      offset = 0,
+    )
+    assertEquals(new, applied.mapIndexed { i, item -> item ?: new[i] }, "diffing $old to $new")
+  }
+
+  private fun updates(old: List<Item>, new: List<Item>): List<String> {
+    val updates = mutableListOf<String>()
+    diff(old, new).dispatchTo(
+      object : DifferCallback {
+        override fun onChanged(position: Int, count: Int) {
+          updates += "changed $position+$count"
+        }
+
+        override fun onInserted(position: Int, count: Int) {
+          updates += "inserted $position+$count"
+        }
+
+        override fun onRemoved(position: Int, count: Int) {
+          updates += "removed $position+$count"
+        }
+      },
+      offset = 0,
+    )
+    return updates
+  }
+
+  private fun diff(old: List<Item>, new: List<Item>): KeyedDiff = computeKeyedDiff(
+    oldCount = old.size,
+    newCount = new.size,
+    oldKey = { old[it].key },
+    newKey = { new[it].key },
+    sameContents = { o, n -> old[o] == new[n] },
+    timeBudget = Duration.INFINITE,
+  )!!
+
+  private fun items(vararg keys: String) = keys.map { Item(it) }
+
+  private data class Item(val key: String, val version: Int = 0)
+}
@@ -0,0 +1,107 @@
+package app.cash.paging
+
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.async
+import kotlinx.coroutines.test.runCurrent
+import kotlinx.coroutines.test.runTest
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+class LoadDeduplicatorTest {
+
+  private val deduplicator = LoadDeduplicator<Int, String>()
+  private val source = GatedPagingSource()
+
+  @Test
+  fun concurrentLoadsShareOneLoad() = runTest {
+    val first = async { deduplicator.load(params(), source) }
+    val second = async { deduplicator.load(params(), source) }
+    runCurrent()
+    assertEquals(1, source.loadsStarted)
+
+    source.gate.complete(Unit)
+    assertSame(first.await(), second.await())
+    assertEquals(1, source.loadsStarted)
+  }
+
+  @Test
+  fun differentLoadsAreNotShared() = runTest {
+    async { deduplicator.load(params(key = 0), source) }
+    async { deduplicator.load(params(key = 10), source) }
+    runCurrent()
+    assertEquals(2, source.loadsStarted)
+    source.gate.complete(Unit)
+  }
+
+  @Test
+  fun loadIsCancelledOnlyWhenItsLastWaiterLeaves() = runTest {
+    val first = async { deduplicator.load(params(), source) }
+    val second = async { deduplicator.load(params(), source) }
+    runCurrent()
+
+    first.cancel()
+    runCurrent()
+    assertFalse(source.loadCancelled)
+
+    second.cancel()
+    runCurrent()
+    assertTrue(source.loadCancelled)
+  }
+
+  @Test
+  fun remainingWaiterGetsTheResultAfterAnotherLeaves() = runTest {
+    val first = async { deduplicator.load(params(), source) }
+    val second = async { deduplicator.load(params(), source) }
+    runCurrent()
+
+    first.cancel()
+    runCurrent()
+    source.gate.complete(Unit)
+
+    assertEquals(listOf("item 0"), second.await().pageOrNull()?.data)
+    assertEquals(1, source.loadsStarted)
+  }
+
+  @Test
+  fun loadAfterCancellationStartsAfresh() = runTest {
+    val first = async { deduplicator.load(params(), source) }
+    runCurrent()
+    first.cancel()
+    runCurrent()
+
+    val second = async { deduplicator.load(params(), source) }
+    runCurrent()
+    source.gate.complete(Unit)
+
+    assertEquals(listOf("item 0"), second.await().pageOrNull()?.data)
+    assertEquals(2, source.loadsStarted)
+  }
+
+  private fun params(key: Int = 0) = createPagingSourceLoadParams(LoadType.REFRESH, key, 10, false)
+
+  /** A source whose loads wait for [gate], recording whether one was cancelled while waiting. */
+  private class GatedPagingSource : PagingSource<Int, String>() {
+    val gate = CompletableDeferred<Unit>()
+    var loadsStarted = 0
+    var loadCancelled = false
+
+    override suspend fun load(params: PagingSourceLoadParams<Int>): PagingSourceLoadResult<Int, String> {
+      loadsStarted++
+      try {
+        gate.await()
+      } catch (e: CancellationException) {
+        loadCancelled = true
+        throw e
+      }
+      val key = params.key ?: 0
+      return PagingSourceLoadResultPage<Int, String>(listOf("item $key"), null, key + 1, COUNT_UNDEFINED, COUNT_UNDEFINED)
+        .asLoadResult()
+    }
+
+    override fun getRefreshKey(state: PagingState<Int, String>): Int? = null
+  }
+}
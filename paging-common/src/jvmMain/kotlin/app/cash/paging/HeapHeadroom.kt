@@ -0,0 +1,10 @@
+package app.cash.paging
+
+/**
+ * Returns how many more bytes the JVM heap can grow by before reaching its maximum, for a
+ * [PagingByteBudget] that follows heap headroom.
+ */
+fun heapHeadroomBytes(): Long {
+  val runtime = Runtime.getRuntime()
+  return runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory())
+}
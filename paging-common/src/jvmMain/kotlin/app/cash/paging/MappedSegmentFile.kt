@@ -0,0 +1,71 @@
+package app.cash.paging
+
+import java.io.File
+import java.io.RandomAccessFile
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+
+/**
+ * Returns a [DiskPageStore] that keeps its segment files in [directory], memory mapping each one.
+ * Pages already in [directory] from an earlier store are loaded again.
+ *
+ * @param maxBytes the total size of the segment files.
+ */
+fun <Key : Any, Value : Any> createMappedDiskPageStore(
+  directory: String,
+  codec: PageCodec<Key, Value>,
+  maxBytes: Long,
+): DiskPageStore<Key, Value> = DiskPageStore(MappedSegmentDirectory(File(directory)), codec, maxBytes)
+
+internal class MappedSegmentDirectory(private val directory: File) : SegmentDirectory {
+
+  init {
+    directory.mkdirs()
+  }
+
+  override fun segmentIds(): List<Int> =
+    directory.list().orEmpty().mapNotNull(::segmentId)
+
+  override fun open(id: Int, capacity: Int): SegmentFile =
+    MappedSegmentFile(File(directory, segmentFileName(id)), capacity)
+
+  override fun delete(id: Int) {
+    File(directory, segmentFileName(id)).delete()
+  }
+}
+
+/**
+ * A segment file mapped with [FileChannel.map].
+ *
+ * The JDK has no public way to unmap a [MappedByteBuffer], so [close] flushes the mapping and closes
+ * the channel, but the mapping itself, and the file handle it holds, are only released once the
+ * buffer is garbage collected.
+ */
+internal class MappedSegmentFile(file: File, override val capacity: Int) : SegmentFile {
+
+  private val channel: FileChannel = RandomAccessFile(file, "rw").channel
+
+  private val buffer: MappedByteBuffer = try {
+    channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity.toLong())
+  } catch (e: Throwable) {
+    channel.close()
+    throw e
+  }
+
+  override fun readInt(offset: Int): Int = buffer.getInt(offset)
+
+  override fun read(offset: Int, length: Int): ByteArray {
+    val bytes = ByteArray(length)
+    buffer.duplicate().apply { position(offset) }.get(bytes)
+    return bytes
+  }
+
+  override fun write(offset: Int, bytes: ByteArray) {
+    buffer.duplicate().apply { position(offset) }.put(bytes)
+  }
+
+  override fun close() {
+    buffer.force()
+    channel.close()
+  }
+}
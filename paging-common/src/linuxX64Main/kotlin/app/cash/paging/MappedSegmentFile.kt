@@ -0,0 +1,123 @@
+package app.cash.paging
+
+import kotlinx.cinterop.ByteVar
+import kotlinx.cinterop.CPointer
+import kotlinx.cinterop.ExperimentalForeignApi
+import kotlinx.cinterop.addressOf
+import kotlinx.cinterop.get
+import kotlinx.cinterop.plus
+import kotlinx.cinterop.pointed
+import kotlinx.cinterop.reinterpret
+import kotlinx.cinterop.toKString
+import kotlinx.cinterop.usePinned
+import platform.posix.MAP_FAILED
+import platform.posix.MAP_SHARED
+import platform.posix.MS_SYNC
+import platform.posix.O_CREAT
+import platform.posix.O_RDWR
+import platform.posix.PROT_READ
+import platform.posix.PROT_WRITE
+import platform.posix.S_IRWXU
+import platform.posix.close
+import platform.posix.closedir
+import platform.posix.errno
+import platform.posix.ftruncate
+import platform.posix.memcpy
+import platform.posix.mkdir
+import platform.posix.mmap
+import platform.posix.msync
+import platform.posix.munmap
+import platform.posix.open
+import platform.posix.opendir
+import platform.posix.readdir
+import platform.posix.strerror
+import platform.posix.unlink
+
+/**
+ * Returns a [DiskPageStore] that keeps its segment files in [directory], memory mapping each one.
+ * Pages already in [directory] from an earlier store are loaded again.
+ *
+ * @param maxBytes the total size of the segment files.
+ */
+fun <Key : Any, Value : Any> createMappedDiskPageStore(
+  directory: String,
+  codec: PageCodec<Key, Value>,
+  maxBytes: Long,
+): DiskPageStore<Key, Value> = DiskPageStore(MappedSegmentDirectory(directory), codec, maxBytes)
+
+@OptIn(ExperimentalForeignApi::class)
+internal class MappedSegmentDirectory(private val directory: String) : SegmentDirectory {
+
+  init {
+    mkdir(directory, S_IRWXU.toUInt())
+  }
+
+  override fun segmentIds(): List<Int> {
+    val dir = opendir(directory) ?: throw IllegalStateException("opendir $directory: ${errorMessage()}")
+    try {
+      val ids = mutableListOf<Int>()
+      while (true) {
+        val entry = readdir(dir) ?: break
+        segmentId(entry.pointed.d_name.toKString())?.let(ids::add)
+      }
+      return ids
+    } finally {
+      closedir(dir)
+    }
+  }
+
+  override fun open(id: Int, capacity: Int): SegmentFile =
+    MappedSegmentFile("$directory/${segmentFileName(id)}", capacity)
+
+  override fun delete(id: Int) {
+    unlink("$directory/${segmentFileName(id)}")
+  }
+}
+
+@OptIn(ExperimentalForeignApi::class)
+internal class MappedSegmentFile(path: String, override val capacity: Int) : SegmentFile {
+
+  private val address: CPointer<ByteVar>
+
+  init {
+    val fd = open(path, O_RDWR or O_CREAT, S_IRWXU)
+    check(fd >= 0) { "open $path: ${errorMessage()}" }
+    try {
+      check(ftruncate(fd, capacity.toLong()) == 0) { "ftruncate $path: ${errorMessage()}" }
+      val mapping = mmap(null, capacity.toULong(), PROT_READ or PROT_WRITE, MAP_SHARED, fd, 0)
+      check(mapping != MAP_FAILED && mapping != null) { "mmap $path: ${errorMessage()}" }
+      address = mapping.reinterpret()
+    } finally {
+      // The mapping stays valid after the descriptor is closed.
+      close(fd)
+    }
+  }
+
+  override fun readInt(offset: Int): Int =
+    (address[offset].toInt() and 0xff shl 24) or
+      (address[offset + 1].toInt() and 0xff shl 16) or
+      (address[offset + 2].toInt() and 0xff shl 8) or
+      (address[offset + 3].toInt() and 0xff)
+
+  override fun read(offset: Int, length: Int): ByteArray {
+    val bytes = ByteArray(length)
+    if (length > 0) {
+      bytes.usePinned { memcpy(it.addressOf(0), address + offset, length.toULong()) }
+    }
+    return bytes
+  }
+
+  override fun write(offset: Int, bytes: ByteArray) {
+    if (bytes.isNotEmpty()) {
+      bytes.usePinned { memcpy(address + offset, it.addressOf(0), bytes.size.toULong()) }
+    }
+  }
+
+  override fun close() {
+    msync(address, capacity.toULong(), MS_SYNC)
+    munmap(address, capacity.toULong())
+  }
+}
+
+@OptIn(ExperimentalForeignApi::class)
+private fun errorMessage(): String = strerror(errno)?.toKString() ?: "errno $errno"
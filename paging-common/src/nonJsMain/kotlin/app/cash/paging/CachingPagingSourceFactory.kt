@@ -0,0 +1,109 @@
+package app.cash.paging
+
+import kotlinx.atomicfu.locks.SynchronizedObject
+import kotlinx.atomicfu.locks.synchronized
+import kotlinx.coroutines.CoroutineScope
+
+/**
+ * A [PagingSourceFactory] that wraps each [PagingSource] created by [pagingSourceFactory] in a
+ * [CachingPagingSource], all sharing [cache]. Pages that are still cached are served without a
+ * load after each invalidation.
+ *
+ * To update part of the list, call [invalidatePage], [invalidateItems], or [invalidateRange]
+ * rather than [invalidate]. They evict only the affected pages from [cache], so only those pages are
+ * fetched from the delegate again. They still invalidate the whole generation: the [Pager] reloads
+ * every page it held, most of them from [cache], and diffs the new list against the old one.
+ * Present the list with a [KeyedPagingDataDiffer] so that only the changed items are redrawn.
+ *
+ * Partial invalidation needs keys anchored to the items, such as cursors or item ids, and is only
+ * allowed when [itemAnchoredKeys] says so. With offset or position keys an insert or delete shifts
+ * every later page, and keeping the neighbouring pages would duplicate or drop items, so only
+ * [invalidate] is allowed.
+ */
+class CachingPagingSourceFactory<Key : Any, Value : Any>(
+  private val pagingSourceFactory: () -> PagingSource<Key, Value>,
+  val cache: PageCache<Key, Value>,
+  private val revalidationScope: CoroutineScope? = null,
+  private val itemAnchoredKeys: Boolean = false,
+) : PagingSourceFactory<Key, Value> {
+
+  private val lock = SynchronizedObject()
+  private var current: CachingPagingSource<Key, Value>? = null
+
+  override fun invoke(): PagingSource<Key, Value> {
+    val pagingSource = CachingPagingSource(pagingSourceFactory(), cache, revalidationScope)
+    synchronized(lock) { current = pagingSource }
+    return pagingSource
+  }
+
+  /** Evicts every cached page, including those on disk, and invalidates the current source. */
+  fun invalidate() {
+    invalidateCurrent { cache.clear() }
+  }
+
+  /**
+   * Evicts the pages loaded with [key] and invalidates the current source.
+   *
+   * @throws IllegalStateException unless [itemAnchoredKeys].
+   */
+  fun invalidatePage(key: Key?) {
+    checkItemAnchoredKeys()
+    invalidateCurrent { cache.removeKeys { it.key == key } }
+  }
+
+  /**
+   * Evicts the pages holding an item that [predicate] matches, such as the old version of a row
+   * that changed, and invalidates the current source. Pages on disk are read to be tested.
+   *
+   * @throws IllegalStateException unless [itemAnchoredKeys].
+   */
+  fun invalidateItems(predicate: (Value) -> Boolean) {
+    checkItemAnchoredKeys()
+    invalidateCurrent { cache.removePages { page -> page.data.any(predicate) } }
+  }
+
+  internal fun invalidatePages(predicate: (PagingSourceLoadResultPage<Key, Value>) -> Boolean) {
+    checkItemAnchoredKeys()
+    invalidateCurrent { cache.removePages(predicate) }
+  }
+
+  private fun checkItemAnchoredKeys() {
+    check(itemAnchoredKeys) {
+      "Partial invalidation needs item-anchored keys. Pass itemAnchoredKeys = true, or call invalidate()."
+    }
+  }
+
+  /**
+   * Runs [evict] and then invalidates the current source. The source stops caching pages before
+   * [evict] runs, so a load still running on it can't put an evicted page back, and it's only
+   * invalidated afterwards, so the next generation can't read a page that's about to be evicted.
+   */
+  private inline fun invalidateCurrent(evict: () -> Unit) {
+    val pagingSource = synchronized(lock) { current }
+    pagingSource?.closeCacheWrites()
+    evict()
+    pagingSource?.invalidate()
+  }
+}
+
+/**
+ * Evicts the pages whose keys overlap [fromKey] to [toKey], both inclusive, and invalidates the
+ * current source. A page overlaps when neither its `prevKey` is after [toKey] nor its `nextKey`
+ * before [fromKey], so a page adjacent to the range may be reloaded too.
+ *
+ * Keys must be item-anchored, such as sorted ids: with offset keys an insert or delete in the range
+ * shifts the pages after it.
+ *
+ * @throws IllegalStateException unless the factory was created with `itemAnchoredKeys`.
+ */
+fun <Key : Comparable<Key>, Value : Any> CachingPagingSourceFactory<Key, Value>.invalidateRange(
+  fromKey: Key,
+  toKey: Key,
+) {
+  require(fromKey <= toKey) { "fromKey $fromKey is after toKey $toKey" }
+  invalidatePages { page ->
+    val prevKey = page.prevKey
+    val nextKey = page.nextKey
+    (prevKey == null || prevKey <= toKey) && (nextKey == null || nextKey >= fromKey)
+  }
+}
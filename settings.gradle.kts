@@ -18,6 +18,7 @@ dependencyResolutionManagement {
   }
 }
 
+include(":paging-benchmark")
 include(":paging-common")
 include(":paging-compose-common")
 include(":paging-runtime-uikit")